@@ -0,0 +1,55 @@
+// Writes .gz and .br siblings for the text assets of a production build, so
+// that Spring's EncodedResourceResolver can serve them without compressing at
+// request time.  Run after `npm run build`:
+//
+//   node scripts/precompress.js build
+//
+// Files smaller than MIN_BYTES, or that do not shrink, are left alone.
+
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const MIN_BYTES = 1024;
+const EXTENSIONS = new Set([".html", ".js", ".css", ".json", ".map", ".svg", ".txt", ".ico"]);
+
+function* walk(dir) {
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const file = path.join(dir, entry.name);
+    if (entry.isDirectory()) {
+      yield* walk(file);
+    } else if (EXTENSIONS.has(path.extname(entry.name))) {
+      yield file;
+    }
+  }
+}
+
+function writeIfSmaller(file, original, compressed) {
+  if (compressed.length < original.length) {
+    fs.writeFileSync(file, compressed);
+    return compressed.length;
+  }
+  return 0;
+}
+
+const root = process.argv[2] || "build";
+let files = 0;
+let before = 0;
+let gzipped = 0;
+let brotli = 0;
+for (const file of walk(root)) {
+  const original = fs.readFileSync(file);
+  if (original.length < MIN_BYTES) {
+    continue;
+  }
+  files += 1;
+  before += original.length;
+  gzipped += writeIfSmaller(`${file}.gz`, original, zlib.gzipSync(original, { level: 9 }));
+  brotli += writeIfSmaller(`${file}.br`, original, zlib.brotliCompressSync(original, {
+    params: {
+      [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+      [zlib.constants.BROTLI_PARAM_SIZE_HINT]: original.length,
+    },
+  }));
+}
+console.log(`precompressed ${files} files in ${root}: ${before} bytes, gzip ${gzipped}, brotli ${brotli}`);
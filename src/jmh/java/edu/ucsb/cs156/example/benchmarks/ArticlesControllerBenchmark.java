@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import edu.ucsb.cs156.example.controllers.ArticlesController;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.PatchResult;
+
+public class ArticlesControllerBenchmark extends SeededApplication {
+
+  private ArticlesController controller;
+
+  /** Current version of article 1, the row that patch() updates. */
+  private long patchedVersion;
+
+  private final Articles incoming = Articles.builder()
+      .title("Updated title")
+      .url("https://example.org/updated")
+      .explanation("updated by benchmark")
+      .email("benchmark@ucsb.edu")
+      .dateAdded(LocalDateTime.parse("2024-02-01T12:00:00"))
+      .build();
+
+  @Override
+  protected void seed(JdbcTemplate jdbcTemplate, int rows) {
+    jdbcTemplate.update("""
+        insert into articles (title, url, explanation, email, date_added)
+        select 'Article ' || x, 'https://example.org/' || x, 'explanation ' || x, 'benchmark@ucsb.edu',
+               dateadd('MINUTE', x, timestamp '2024-01-01 00:00:00')
+        from system_range(1, ?)
+        """, rows);
+  }
+
+  @Override
+  protected void wire(ConfigurableApplicationContext context) {
+    controller = context.getBean(ArticlesController.class);
+    patchedVersion = controller.getById(1L).getVersion();
+  }
+
+  @Benchmark
+  public Articles getById() {
+    return controller.getById(randomId());
+  }
+
+  @Benchmark
+  public Iterable<Articles> all() {
+    return controller.allArticles();
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> allTitles() {
+    return controller.allArticleFields("title,dateAdded");
+  }
+
+  @Benchmark
+  public Articles post() throws JsonProcessingException {
+    return controller.postArticles("New article", "https://example.org/new", "posted by benchmark",
+        "benchmark@ucsb.edu", LocalDateTime.parse("2024-02-01T12:00:00"));
+  }
+
+  @Benchmark
+  public Articles update() {
+    return controller.updateArticle(randomId(), incoming);
+  }
+
+  @Benchmark
+  public PatchResult patch() {
+    PatchResult result = controller.patchArticle(1L, patchedVersion, Map.of("title", "Patched title"));
+    patchedVersion = result.getVersion();
+    return result;
+  }
+}
@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.services.BulkTransferService;
+import edu.ucsb.cs156.example.services.BulkTransferService.Format;
+
+/**
+ * Time to import {@code rows} rows in one call, starting from an empty table:
+ * restaurants (IDENTITY ids, one insert statement per row) from CSV and menu
+ * items (sequence ids, JDBC-batched inserts) from JSON Lines.
+ *
+ * Each import adds rows, so the tables grow over a trial.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BulkImportBenchmark extends SeededApplication {
+
+  @Param({ "1000" })
+  public int batchSize;
+
+  private BulkTransferService bulkTransferService;
+
+  private byte[] restaurantsCsv;
+  private byte[] menuItemsJsonLines;
+
+  @Override
+  protected void seed(JdbcTemplate jdbcTemplate, int rows) {
+    StringBuilder csv = new StringBuilder("name,description\n");
+    StringBuilder jsonLines = new StringBuilder();
+    for (int i = 1; i <= rows; i++) {
+      csv.append("Restaurant ").append(i).append(",\"pizza, pasta and salad\"\n");
+      jsonLines.append("{\"diningCommonsCode\":\"ortega\",\"name\":\"Item ").append(i)
+          .append("\",\"station\":\"Station ").append(i % 10).append("\"}\n");
+    }
+    restaurantsCsv = csv.toString().getBytes(StandardCharsets.UTF_8);
+    menuItemsJsonLines = jsonLines.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected void wire(ConfigurableApplicationContext context) {
+    bulkTransferService = context.getBean(BulkTransferService.class);
+  }
+
+  @Benchmark
+  public BulkImportReport importRestaurantsCsv() throws IOException {
+    return checked(bulkTransferService.importRows("restaurant", Format.CSV,
+        new ByteArrayInputStream(restaurantsCsv), batchSize));
+  }
+
+  @Benchmark
+  public BulkImportReport importMenuItemsJsonLines() throws IOException {
+    return checked(bulkTransferService.importRows("ucsbdiningcommonsmenuitem", Format.JSON_LINES,
+        new ByteArrayInputStream(menuItemsJsonLines), batchSize));
+  }
+
+  private BulkImportReport checked(BulkImportReport report) {
+    if (report.getImported() != rows) {
+      throw new IllegalStateException("imported " + report.getImported() + " of " + rows + ": " + report.getErrors());
+    }
+    return report;
+  }
+}
@@ -0,0 +1,194 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Fires bursts of {@code concurrency} simultaneous article reads, creates or
+ * updates at the embedded Tomcat with a JDBC pool of {@code poolSize}
+ * connections.  After each iteration it prints how long requests waited for
+ * a connection (the hikaricp.connections.acquire timer that production
+ * exposes under /actuator/metrics) and how many gave up waiting.
+ *
+ * While concurrency is below the pool size the wait stays near zero; past it
+ * requests queue for a connection and the burst time grows with the queue
+ * rather than with the work per request.  A larger pool only helps as far as
+ * the database runs the extra statements in parallel: the in-memory H2 used
+ * here serializes writes, so create and update stop improving early.
+ *
+ * Requests are authenticated as an admin by the same filter as
+ * {@link HelpRequestsConcurrencyBenchmark}; writes pass the double-submit
+ * CSRF check by sending the same token as cookie and header.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConnectionPoolSaturationBenchmark {
+
+  private static final String CSRF_TOKEN = "benchmark";
+
+  @Param({ "5", "10", "20" })
+  public int poolSize;
+
+  @Param({ "10", "50", "200" })
+  public int concurrency;
+
+  @Param({ "1000" })
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+
+  private HttpClient client;
+
+  private String baseUrl;
+
+  private Timer acquire;
+
+  private Counter timeouts;
+
+  private long acquiredBefore;
+
+  private double waitedBefore;
+
+  private double timeoutsBefore;
+
+  /** Ids updated in turn, so one burst never updates a row twice (that is a 409). */
+  private long nextUpdatedId;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = new SpringApplicationBuilder(SeededApplication.BenchmarkApplication.class,
+        HelpRequestsConcurrencyBenchmark.BenchmarkAuthentication.class)
+        .run(
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+            "--spring.datasource.hikari.minimum-idle=" + poolSize,
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--logging.level.root=WARN");
+    context.getBean(JdbcTemplate.class).update("""
+        insert into articles (title, url, explanation, email, date_added)
+        select 'Article ' || x, 'https://example.org/' || x, 'explanation ' || x, 'benchmark@ucsb.edu',
+               dateadd('MINUTE', x, timestamp '2024-01-01 00:00:00')
+        from system_range(1, ?)
+        """, rows);
+
+    MeterRegistry registry = context.getBean(MeterRegistry.class);
+    acquire = registry.get("hikaricp.connections.acquire").timer();
+    timeouts = registry.get("hikaricp.connections.timeout").counter();
+
+    int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    baseUrl = "http://localhost:" + port;
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Setup(Level.Iteration)
+  public void markPoolMetrics() {
+    acquiredBefore = acquire.count();
+    waitedBefore = acquire.totalTime(TimeUnit.MILLISECONDS);
+    timeoutsBefore = timeouts.count();
+  }
+
+  @TearDown(Level.Iteration)
+  public void reportPoolMetrics() {
+    long acquired = acquire.count() - acquiredBefore;
+    double waited = acquire.totalTime(TimeUnit.MILLISECONDS) - waitedBefore;
+    System.out.printf("%n  pool %d: %d connections acquired, mean wait %.3f ms, %d timeouts%n",
+        poolSize, acquired, acquired == 0 ? 0.0 : waited / acquired, (long) (timeouts.count() - timeoutsBefore));
+  }
+
+  @Benchmark
+  public int read() throws IOException {
+    return burst(() -> HttpRequest.newBuilder(uri("/api/articles?id=" + randomId())).GET().build());
+  }
+
+  @Benchmark
+  public int create() throws IOException {
+    return burst(() -> write(uri("/api/articles/post?title=New%20article&url=https://example.org/new"
+        + "&explanation=posted%20by%20benchmark&email=benchmark@ucsb.edu&dateAdded=2024-02-01T12:00:00"))
+        .POST(HttpRequest.BodyPublishers.noBody())
+        .build());
+  }
+
+  @Benchmark
+  public int update() throws IOException {
+    return burst(() -> write(uri("/api/articles?id=" + (nextUpdatedId++ % rows + 1)))
+        .header("Content-Type", "application/json")
+        .PUT(HttpRequest.BodyPublishers.ofString("""
+            {"title": "Updated title", "url": "https://example.org/updated",
+             "explanation": "updated by benchmark", "email": "benchmark@ucsb.edu",
+             "dateAdded": "2024-02-01T12:00:00"}
+            """))
+        .build());
+  }
+
+  private URI uri(String path) {
+    return URI.create(baseUrl + path);
+  }
+
+  private long randomId() {
+    return ThreadLocalRandom.current().nextLong(1, rows + 1);
+  }
+
+  private static HttpRequest.Builder write(URI uri) {
+    return HttpRequest.newBuilder(uri)
+        .header("Cookie", "XSRF-TOKEN=" + CSRF_TOKEN)
+        .header("X-XSRF-TOKEN", CSRF_TOKEN);
+  }
+
+  /** Sends {@code concurrency} requests at once and waits for all of them. */
+  @SuppressWarnings("unchecked")
+  private int burst(Supplier<HttpRequest> request) throws IOException {
+    CompletableFuture<HttpResponse<Void>>[] responses = new CompletableFuture[concurrency];
+    for (int i = 0; i < concurrency; i++) {
+      responses[i] = client.sendAsync(request.get(), HttpResponse.BodyHandlers.discarding());
+    }
+    CompletableFuture.allOf(responses).join();
+    for (CompletableFuture<HttpResponse<Void>> response : responses) {
+      int status = response.join().statusCode();
+      if (status != 200) {
+        throw new IOException("unexpected status " + status);
+      }
+    }
+    return concurrency;
+  }
+}
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import edu.ucsb.cs156.example.controllers.UserInfoController;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+
+/**
+ * GET /api/currentUser for a Google login, called on the controller bean.
+ * {@code sameSession} repeats the call within one session, as every request
+ * after login does; {@code newSession} starts a new session per call, so the
+ * principal is resolved to a user row each time.  The service benchmarks
+ * call CurrentUserService directly, leaving out the @PreAuthorize check and
+ * the controller aspects that every handler pays for.  Run with -prof gc and
+ * compare gc.alloc.rate.norm (bytes allocated per call).
+ */
+public class CurrentUserBenchmark extends SeededApplication {
+
+  private UserInfoController controller;
+
+  private CurrentUserService currentUserService;
+
+  private OAuth2User principal;
+
+  @Override
+  protected void seed(JdbcTemplate jdbcTemplate, int rows) {
+    jdbcTemplate.update("""
+        insert into users (email, google_sub, picture_url, full_name, given_name, family_name,
+                           email_verified, locale, hosted_domain, admin)
+        select 'user' || x || '@ucsb.edu', 'sub' || x, 'https://example.org/' || x || '.jpg',
+               'User ' || x, 'User', '' || x, true, 'en', 'ucsb.edu', false
+        from system_range(1, ?)
+        """, rows);
+  }
+
+  @Override
+  protected void wire(ConfigurableApplicationContext context) {
+    controller = context.getBean(UserInfoController.class);
+    currentUserService = context.getBean(CurrentUserService.class);
+    principal = new DefaultOAuth2User(AuthorityUtils.createAuthorityList("ROLE_USER"), Map.of(
+        "sub", "sub1",
+        "email", "user1@ucsb.edu",
+        "picture", "https://example.org/1.jpg",
+        "name", "User 1",
+        "given_name", "User",
+        "family_name", "1",
+        "email_verified", true,
+        "locale", "en",
+        "hd", "ucsb.edu"), "sub");
+    login();
+  }
+
+  private void login() {
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  @Benchmark
+  public CurrentUser sameSession() {
+    return controller.getCurrentUser();
+  }
+
+  @Benchmark
+  public CurrentUser newSession() {
+    login();
+    return controller.getCurrentUser();
+  }
+
+  @Benchmark
+  public CurrentUser serviceSameSession() {
+    return currentUserService.getCurrentUser();
+  }
+
+  @Benchmark
+  public CurrentUser serviceNewSession() {
+    login();
+    return currentUserService.getCurrentUser();
+  }
+}
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+
+/**
+ * Jackson serialization cost of one instance of each entity, using an
+ * ObjectMapper configured the way Spring Boot configures the MVC one.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class EntitySerializationBenchmark {
+
+  private static final LocalDateTime WHEN = LocalDateTime.parse("2024-01-15T10:30:00");
+
+  @Param({ "Articles", "HelpRequest", "MenuItemReview", "RecommendationRequest", "Restaurant", "UCSBDate",
+      "UCSBDiningCommons", "UCSBDiningCommonsMenuItem", "UCSBOrganization", "User" })
+  public String entity;
+
+  private ObjectMapper mapper;
+  private Object sample;
+
+  @Setup
+  public void setup() {
+    mapper = Jackson2ObjectMapperBuilder.json().build();
+    sample = sample(entity);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(sample);
+  }
+
+  private static Object sample(String entity) {
+    return switch (entity) {
+      case "Articles" -> Articles.builder().id(1L).title("Using testing-playground with React Testing Library")
+          .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+          .explanation("Helpful when we get to front end development").email("phtcon@ucsb.edu")
+          .dateAdded(WHEN).build();
+      case "HelpRequest" -> HelpRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3")
+          .tableOrBreakoutRoom("7").requestTime(WHEN).explanation("Need help with Swagger-ui").solved(false).build();
+      case "MenuItemReview" -> MenuItemReview.builder().id(1L).itemId(27L).reviewerEmail("cgaucho@ucsb.edu")
+          .stars(3).dateReviewed(WHEN).comments("bland af but edible I guess").build();
+      case "RecommendationRequest" -> RecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu")
+          .professorEmail("phtcon@ucsb.edu").explanation("BS/MS program").dateRequested(WHEN)
+          .dateNeeded(WHEN.plusWeeks(4)).done(false).build();
+      case "Restaurant" -> Restaurant.builder().id(1L).name("Cristino's Bakery")
+          .description("Mexican bakery on Milpas").build();
+      case "UCSBDate" -> UCSBDate.builder().id(1L).quarterYYYYQ("20241").name("first day of classes")
+          .localDateTime(WHEN).build();
+      case "UCSBDiningCommons" -> UCSBDiningCommons.builder().code("ortega").name("Ortega").hasSackMeal(true)
+          .hasTakeOutMeal(true).hasDiningCam(true).latitude(34.410987).longitude(-119.84709).build();
+      case "UCSBDiningCommonsMenuItem" -> UCSBDiningCommonsMenuItem.builder().id(1L).diningCommonsCode("ortega")
+          .name("Baked Pesto Pasta with Chicken").station("Entree Specials").build();
+      case "UCSBOrganization" -> UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("ZETA PHI RHO")
+          .orgTranslation("ZETA PHI RHO").inactive(false).build();
+      case "User" -> User.builder().id(1L).email("cgaucho@ucsb.edu").googleSub("115856948234298493496")
+          .pictureUrl("https://lh3.googleusercontent.com/a/photo.jpg").fullName("Chris Gaucho").givenName("Chris")
+          .familyName("Gaucho").emailVerified(true).locale("en").hostedDomain("ucsb.edu").admin(false).build();
+      default -> throw new IllegalArgumentException("unknown entity " + entity);
+    };
+  }
+}
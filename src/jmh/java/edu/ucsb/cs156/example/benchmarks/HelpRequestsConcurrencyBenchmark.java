@@ -0,0 +1,162 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Fires {@code concurrency} simultaneous HTTP requests at the embedded Tomcat
+ * and measures how long the whole burst takes, with request handling on
+ * Tomcat's worker pool ({@code virtualThreads=false}) or on virtual threads
+ * ({@code virtualThreads=true}).  The highest concurrency whose burst time
+ * still grows roughly linearly is the maximum sustainable concurrency for
+ * that mode; past it requests queue for a worker (or a JDBC connection).
+ *
+ * The virtual-thread mode needs the forked JVM to be Java 21 or later; on
+ * older runtimes its trials fail at startup, so run with
+ * {@code -p virtualThreads=false} there.
+ *
+ * Unlike the controller benchmarks this goes through the servlet stack, so
+ * the admin login is supplied by a filter that runs after Spring Security
+ * rather than by a global SecurityContext, which concurrent requests would
+ * clear from under each other.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HelpRequestsConcurrencyBenchmark {
+
+  @Param({ "false", "true" })
+  public boolean virtualThreads;
+
+  @Param({ "50", "200", "1000" })
+  public int concurrency;
+
+  @Param({ "1000" })
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+
+  private HttpClient client;
+
+  private String baseUrl;
+
+  /**
+   * Authenticates every request as an admin, after the security filter chain
+   * has run.  Not annotated with @Configuration so that the component scan in
+   * the other benchmarks does not pick it up; it is passed in as a source.
+   */
+  static class BenchmarkAuthentication {
+
+    @Bean
+    FilterRegistrationBean<Filter> benchmarkAuthenticationFilter() {
+      Authentication admin = new UsernamePasswordAuthenticationToken(
+          "benchmark@ucsb.edu", "N/A", AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+      FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(
+          (ServletRequest request, ServletResponse response, FilterChain chain) -> {
+            SecurityContextHolder.getContext().setAuthentication(admin);
+            try {
+              chain.doFilter(request, response);
+            } finally {
+              SecurityContextHolder.clearContext();
+            }
+          });
+      registration.setOrder(0);
+      return registration;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = new SpringApplicationBuilder(SeededApplication.BenchmarkApplication.class, BenchmarkAuthentication.class)
+        .run(
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--app.virtualThreads.enabled=" + virtualThreads,
+            "--logging.level.root=WARN");
+    context.getBean(JdbcTemplate.class).update("""
+        insert into helprequests (requester_email, team_id, table_or_breakout_room, request_time, explanation, solved)
+        select 'student' || x || '@ucsb.edu', 'w24-6pm-' || mod(x, 8), 'table ' || mod(x, 12),
+               dateadd('MINUTE', x, timestamp '2024-01-01 00:00:00'), 'explanation ' || x, mod(x, 2) = 0
+        from system_range(1, ?)
+        """, rows);
+
+    int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    baseUrl = "http://localhost:" + port;
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public int all() throws IOException {
+    return burst(() -> "/api/helprequests/all");
+  }
+
+  @Benchmark
+  public int getById() throws IOException {
+    return burst(() -> "/api/helprequests?id=" + ThreadLocalRandom.current().nextLong(1, rows + 1));
+  }
+
+  /** Sends {@code concurrency} requests at once and waits for all of them. */
+  @SuppressWarnings("unchecked")
+  private int burst(Supplier<String> path) throws IOException {
+    CompletableFuture<HttpResponse<Void>>[] responses = new CompletableFuture[concurrency];
+    for (int i = 0; i < concurrency; i++) {
+      HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path.get())).GET().build();
+      responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+    }
+    CompletableFuture.allOf(responses).join();
+    for (CompletableFuture<HttpResponse<Void>> response : responses) {
+      int status = response.join().statusCode();
+      if (status != 200) {
+        throw new IOException("unexpected status " + status);
+      }
+    }
+    return concurrency;
+  }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+/**
+ * Boots the full application against an in-memory H2 database, seeds it with
+ * {@code rows} rows, and authenticates every benchmark thread as an admin so
+ * that controller methods can be called directly past @PreAuthorize.
+ *
+ * Note that the post benchmarks insert rows, so the table grows over a trial.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+public abstract class SeededApplication {
+
+  @Param({ "1000", "100000", "1000000" })
+  public int rows;
+
+  protected ConfigurableApplicationContext context;
+
+  /**
+   * ExampleApplication's configuration, minus the mock beans under testconfig
+   * that share the test classpath with the benchmarks.
+   */
+  @SpringBootConfiguration
+  @EnableAutoConfiguration
+  @AutoConfigurationPackage(basePackageClasses = ExampleApplication.class)
+  @ComponentScan(basePackageClasses = ExampleApplication.class, excludeFilters = {
+      @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ExampleApplication.class),
+      @ComponentScan.Filter(type = FilterType.REGEX, pattern = "edu\\.ucsb\\.cs156\\.example\\.testconfig\\..*") })
+  static class BenchmarkApplication {
+  }
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = new SpringApplicationBuilder(BenchmarkApplication.class).run(
+        "--server.port=0",
+        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--logging.level.root=WARN");
+    seed(context.getBean(JdbcTemplate.class), rows);
+
+    SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+        "benchmark@ucsb.edu", "N/A", AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN")));
+
+    wire(context);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    SecurityContextHolder.clearContext();
+    context.close();
+  }
+
+  /** Inserts {@code rows} rows with ids 1..rows. */
+  protected abstract void seed(JdbcTemplate jdbcTemplate, int rows);
+
+  /** Looks up the beans the benchmark methods call. */
+  protected abstract void wire(ConfigurableApplicationContext context);
+
+  protected long randomId() {
+    return ThreadLocalRandom.current().nextLong(1, rows + 1);
+  }
+}
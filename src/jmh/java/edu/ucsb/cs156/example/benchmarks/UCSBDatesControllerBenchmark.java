@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.LocalDateTime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import edu.ucsb.cs156.example.controllers.UCSBDatesController;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+public class UCSBDatesControllerBenchmark extends SeededApplication {
+
+  private UCSBDatesController controller;
+
+  private final UCSBDate incoming = UCSBDate.builder()
+      .quarterYYYYQ("20242")
+      .name("updated by benchmark")
+      .localDateTime(LocalDateTime.parse("2024-04-01T08:00:00"))
+      .build();
+
+  @Override
+  protected void seed(JdbcTemplate jdbcTemplate, int rows) {
+    jdbcTemplate.update("""
+        insert into ucsbdates (quarteryyyyq, name, local_date_time)
+        select cast(2000 + mod(x, 25) as varchar) || cast(1 + mod(x, 4) as varchar), 'date ' || x,
+               dateadd('MINUTE', x, timestamp '2024-01-01 00:00:00')
+        from system_range(1, ?)
+        """, rows);
+  }
+
+  @Override
+  protected void wire(ConfigurableApplicationContext context) {
+    controller = context.getBean(UCSBDatesController.class);
+  }
+
+  @Benchmark
+  public UCSBDate getById() {
+    return controller.getById(randomId());
+  }
+
+  @Benchmark
+  public Iterable<UCSBDate> all() {
+    return controller.allUCSBDates();
+  }
+
+  @Benchmark
+  public UCSBDate post() throws JsonProcessingException {
+    return controller.postUCSBDate("20241", "posted by benchmark", LocalDateTime.parse("2024-01-08T08:00:00"));
+  }
+
+  @Benchmark
+  public UCSBDate update() {
+    return controller.updateUCSBDate(randomId(), incoming);
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import edu.ucsb.cs156.example.controllers.UCSBDiningCommonsMenuItemController;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+
+public class UCSBDiningCommonsMenuItemControllerBenchmark extends SeededApplication {
+
+  private UCSBDiningCommonsMenuItemController controller;
+
+  private final UCSBDiningCommonsMenuItem incoming = UCSBDiningCommonsMenuItem.builder()
+      .diningCommonsCode("ortega")
+      .name("Updated Item")
+      .station("Entrees")
+      .build();
+
+  @Override
+  protected void seed(JdbcTemplate jdbcTemplate, int rows) {
+    jdbcTemplate.update("""
+        insert into ucsbdiningcommonsmenuitem (id, dining_commons_code, name, station)
+        select x, casewhen(mod(x, 2) = 0, 'ortega', 'portola'), 'Item ' || x, 'Station ' || mod(x, 10)
+        from system_range(1, ?)
+        """, rows);
+    // ids come from a pooled sequence; the next value read hands out rows+1 .. rows+50
+    jdbcTemplate.execute("alter sequence ucsbdiningcommonsmenuitem_seq restart with " + (rows + 50));
+  }
+
+  @Override
+  protected void wire(ConfigurableApplicationContext context) {
+    controller = context.getBean(UCSBDiningCommonsMenuItemController.class);
+  }
+
+  @Benchmark
+  public UCSBDiningCommonsMenuItem getById() {
+    return controller.getById(randomId());
+  }
+
+  @Benchmark
+  public Iterable<UCSBDiningCommonsMenuItem> all() {
+    return controller.allUCSBMenuItems();
+  }
+
+  @Benchmark
+  public UCSBDiningCommonsMenuItem post() throws JsonProcessingException {
+    return controller.postUCSBMenuItem("New Item", "carrillo", "Grill");
+  }
+
+  @Benchmark
+  public UCSBDiningCommonsMenuItem update() {
+    return controller.updateUCSBMenuItem(randomId(), incoming);
+  }
+}
@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-handler latency histograms and request/error counters.
+ *
+ * Request threads record into an HdrHistogram Recorder, which is wait-free for
+ * writers.  Readers swap out the recorder's interval histogram and fold it
+ * into a running total, so reads never block recording.
+ */
+@Component
+public class HandlerLatencies {
+
+  private static final int SIGNIFICANT_DIGITS = 3;
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Map<Method, HandlerStats> stats = new ConcurrentHashMap<>();
+
+  public void record(Method handler, long durationNanos, boolean failed) {
+    HandlerStats handlerStats = stats.get(handler);
+    if (handlerStats == null) {
+      handlerStats = stats.computeIfAbsent(handler, HandlerStats::new);
+    }
+    handlerStats.record(durationNanos, failed);
+  }
+
+  /** Summaries keyed by "Controller.handler", sorted by name. */
+  public SortedMap<String, HandlerLatencySnapshot> snapshot() {
+    SortedMap<String, HandlerLatencySnapshot> snapshots = new TreeMap<>();
+    stats.values().forEach(handlerStats -> snapshots.put(handlerStats.name, handlerStats.snapshot()));
+    return snapshots;
+  }
+
+  private static final class HandlerStats {
+    private final String name;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private Histogram interval;
+
+    HandlerStats(Method handler) {
+      name = handler.getDeclaringClass().getSimpleName() + "." + handler.getName();
+    }
+
+    void record(long durationNanos, boolean failed) {
+      recorder.recordValue(durationNanos);
+      requests.increment();
+      if (failed) {
+        errors.increment();
+      }
+    }
+
+    synchronized HandlerLatencySnapshot snapshot() {
+      interval = recorder.getIntervalHistogram(interval);
+      total.add(interval);
+      return HandlerLatencySnapshot.builder()
+          .count(requests.sum())
+          .errors(errors.sum())
+          .meanMillis(total.getMean() / NANOS_PER_MILLI)
+          .p50Millis(total.getValueAtPercentile(50) / NANOS_PER_MILLI)
+          .p90Millis(total.getValueAtPercentile(90) / NANOS_PER_MILLI)
+          .p99Millis(total.getValueAtPercentile(99) / NANOS_PER_MILLI)
+          .maxMillis(total.getMaxValue() / NANOS_PER_MILLI)
+          .build();
+    }
+  }
+}
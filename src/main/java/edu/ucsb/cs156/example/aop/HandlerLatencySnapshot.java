@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.aop;
+
+import lombok.Builder;
+import lombok.Value;
+
+/** Latency summary for one controller handler, as reported by the latency endpoint. */
+@Value
+@Builder
+public class HandlerLatencySnapshot {
+  long count;
+  long errors;
+  double meanMillis;
+  double p50Millis;
+  double p90Millis;
+  double p99Millis;
+  double maxMillis;
+}
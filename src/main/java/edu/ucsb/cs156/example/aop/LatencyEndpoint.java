@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.util.SortedMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint at /actuator/latency reporting request counts, error
+ * counts and latency percentiles for each controller handler.
+ */
+@Component
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+  @Autowired
+  HandlerLatencies handlerLatencies;
+
+  @ReadOperation
+  public SortedMap<String, HandlerLatencySnapshot> latencies() {
+    return handlerLatencies.snapshot();
+  }
+}
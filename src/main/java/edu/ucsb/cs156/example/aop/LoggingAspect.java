@@ -1,25 +1,38 @@
 package edu.ucsb.cs156.example.aop;
 
 import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletRequest;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Logs every controller request.
+ *
+ * The request thread only records method, URI, handler and elapsed time into a
+ * RequestLogBuffer; a background thread formats and writes the log lines.  If
+ * the writer falls behind and the buffer fills up, entries are dropped and the
+ * number dropped is logged instead.
+ */
 @Slf4j
 @Aspect
 @Component
 public class LoggingAspect {
   // language=PointcutExpression
-  private static final String pointcut = """
+  static final String pointcut = """
       @annotation(org.springframework.web.bind.annotation.RequestMapping) ||
       @annotation(org.springframework.web.bind.annotation.GetMapping) ||
       @annotation(org.springframework.web.bind.annotation.PostMapping) ||
@@ -28,25 +41,79 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
-
-  @Before(pointcut)
-  public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  @Value("${app.requestLog.capacity:8192}")
+  private int capacity;
+
+  private RequestLogBuffer buffer;
+  private Thread writer;
+  private volatile boolean running;
+
+  @PostConstruct
+  void startWriter() {
+    buffer = new RequestLogBuffer(capacity);
+    running = true;
+    writer = new Thread(this::drainUntilStopped, "request-log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @PreDestroy
+  void stopWriter() throws InterruptedException {
+    running = false;
+    LockSupport.unpark(writer);
+    writer.join(TimeUnit.SECONDS.toMillis(1));
+  }
+
+  @Around(pointcut)
+  public Object logControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    HttpServletRequest request = getCurrentHttpRequest();
+    if (request == null) {
+      return joinPoint.proceed();
+    }
+    Signature signature = joinPoint.getSignature();
+    String declaringTypeName = signature.getDeclaringTypeName();
+    if (stoplist.contains(declaringTypeName)) {
+      return joinPoint.proceed();
+    }
+    long start = System.nanoTime();
+    try {
+      return joinPoint.proceed();
+    } finally {
+      buffer.offer(request.getMethod(), request.getRequestURI(), signature.getName(), declaringTypeName,
+          System.nanoTime() - start);
+    }
+  }
+
+  private void drainUntilStopped() {
+    long reportedDrops = 0;
+    while (running) {
+      if (buffer.drainTo(this::write) == 0) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+      long drops = buffer.droppedCount();
+      if (drops != reportedDrops) {
+        log.warn("request log buffer full; dropped {} entries", drops - reportedDrops);
+        reportedDrops = drops;
+      }
+    }
+    buffer.drainTo(this::write);
+  }
+
+  private void write(String method, String uri, String handler, String declaringType, long durationNanos) {
+    log.info("===== {} {} handled by {} in {} ({} us)", method, uri, handler, declaringType,
+        TimeUnit.NANOSECONDS.toMicros(durationNanos));
   }
 
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private static HttpServletRequest getCurrentHttpRequest() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes) {
+      return ((ServletRequestAttributes) attributes).getRequest();
+    }
+    return null;
   }
 }
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size ring buffer of request log entries.
+ *
+ * Any number of request threads may offer entries; a single writer thread
+ * drains them.  All storage is allocated up front, so recording an entry is a
+ * CAS and a few array stores.  When the buffer is full, offer drops the entry
+ * and counts it instead of blocking the request thread.
+ */
+public class RequestLogBuffer {
+
+  /** Receives drained entries, in the order they were offered. */
+  @FunctionalInterface
+  public interface Sink {
+    void accept(String method, String uri, String handler, String declaringType, long durationNanos);
+  }
+
+  private final int mask;
+
+  // sequences[i] == position      : slot free for the producer claiming position
+  // sequences[i] == position + 1  : slot holds the entry offered at position
+  private final AtomicLongArray sequences;
+  private final String[] methods;
+  private final String[] uris;
+  private final String[] handlers;
+  private final String[] declaringTypes;
+  private final long[] durations;
+
+  private final AtomicLong head = new AtomicLong();
+  private long tail; // only touched by the draining thread
+  private final LongAdder dropped = new LongAdder();
+
+  public RequestLogBuffer(int requestedCapacity) {
+    // the next power of two, and at least 2
+    int capacity = Integer.highestOneBit(Math.max(1, requestedCapacity - 1)) << 1;
+    mask = capacity - 1;
+    sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    methods = new String[capacity];
+    uris = new String[capacity];
+    handlers = new String[capacity];
+    declaringTypes = new String[capacity];
+    durations = new long[capacity];
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+
+  public long droppedCount() {
+    return dropped.sum();
+  }
+
+  public boolean offer(String method, String uri, String handler, String declaringType, long durationNanos) {
+    for (;;) {
+      long position = head.get();
+      int index = (int) (position & mask);
+      if (sequences.get(index) < position) {
+        // the writer has not caught up with this slot yet: buffer is full
+        dropped.increment();
+        return false;
+      }
+      // fails if another producer took this position since head was read,
+      // including when the slot already holds that producer's entry
+      if (claim(position)) {
+        methods[index] = method;
+        uris[index] = uri;
+        handlers[index] = handler;
+        declaringTypes[index] = declaringType;
+        durations[index] = durationNanos;
+        sequences.set(index, position + 1);
+        return true;
+      }
+    }
+  }
+
+  // package-private so that tests can make a producer lose the race for a position
+  boolean claim(long position) {
+    return head.compareAndSet(position, position + 1);
+  }
+
+  /**
+   * Hands every published entry to the sink and frees its slot.  Must only be
+   * called from one thread at a time.
+   *
+   * @return the number of entries drained
+   */
+  public int drainTo(Sink sink) {
+    int drained = 0;
+    for (;;) {
+      int index = (int) (tail & mask);
+      if (sequences.get(index) != tail + 1) {
+        return drained;
+      }
+      sink.accept(methods[index], uris[index], handlers[index], declaringTypes[index], durations[index]);
+      methods[index] = null;
+      uris[index] = null;
+      handlers[index] = null;
+      declaringTypes[index] = null;
+      sequences.set(index, tail + mask + 1);
+      tail++;
+      drained++;
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/** Times every controller handler and records the result in HandlerLatencies. */
+@Aspect
+@Component
+public class TimingAspect {
+
+  @Autowired
+  HandlerLatencies handlerLatencies;
+
+  @Around(LoggingAspect.pointcut)
+  public Object timeControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    boolean failed = true;
+    long start = System.nanoTime();
+    try {
+      Object result = joinPoint.proceed();
+      failed = false;
+      return result;
+    } finally {
+      handlerLatencies.record(((MethodSignature) joinPoint.getSignature()).getMethod(),
+          System.nanoTime() - start, failed);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.repositories.RowDeletingJpaRepository;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Repositories are built on RowDeletingJpaRepository, so those declared as
+ * RowDeletingRepository get deleteRow and deleteRows.
+ */
+@Configuration
+@EnableJpaRepositories(basePackageClasses = RowDeletingJpaRepository.class,
+    repositoryBaseClass = RowDeletingJpaRepository.class)
+public class JpaConfig {
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Opt-in virtual-thread execution mode, enabled with
+ * {@code app.virtualThreads.enabled=true} (or {@code VIRTUAL_THREADS=true}).
+ *
+ * When on, Tomcat hands every request to a new virtual thread instead of its
+ * bounded worker pool, so controller and repository calls run on virtual
+ * threads; the async executor used by the streaming NDJSON exports is
+ * switched over as well.
+ *
+ * Virtual threads need Java 21.  The factory method is looked up reflectively
+ * so the project still builds for Java 17; on an older runtime the
+ * application fails to start with the property on, rather than quietly
+ * running on the platform thread pools it was meant to replace.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.virtualThreads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+  private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("app.virtualThreads.enabled=true needs Java 21 or later, "
+          + "but this is Java " + Runtime.version().feature(), e);
+    }
+  }
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+    return protocolHandler -> protocolHandler.setExecutor(executor);
+  }
+
+  /**
+   * Replaces Spring Boot's applicationTaskExecutor, which MVC uses for
+   * async (StreamingResponseBody) requests.
+   */
+  @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  public AsyncTaskExecutor applicationTaskExecutor() {
+    return new TaskExecutorAdapter(executor);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
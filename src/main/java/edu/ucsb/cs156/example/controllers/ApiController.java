@@ -1,19 +1,34 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.FieldValueException;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Slf4j
 public abstract class ApiController {
+  // A String so that the controllers can use it as a @RequestParam defaultValue
+  public static final String DEFAULT_PAGE_LIMIT = "100";
+  public static final int MAX_PAGE_LIMIT = 1000;
+
   @Autowired
   private CurrentUserService currentUserService;
 
@@ -25,6 +40,43 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * Window to pass to a keyset query: one row more than the page size, so that
+   * keysetPage can tell whether another page follows without a count query.
+   */
+  protected Pageable keysetWindow(int limit) {
+    return PageRequest.of(0, pageSize(limit) + 1);
+  }
+
+  protected <T, K> KeysetPage<T, K> keysetPage(List<T> rows, int limit, Function<T, K> cursor) {
+    int pageSize = pageSize(limit);
+    if (rows.size() <= pageSize) {
+      return KeysetPage.<T, K>builder().content(rows).build();
+    }
+    List<T> content = rows.subList(0, pageSize);
+    return KeysetPage.<T, K>builder()
+      .content(content)
+      .nextCursor(cursor.apply(content.get(pageSize - 1)))
+      .build();
+  }
+
+  /**
+   * The distinct ids of a bulk delete, which must name between one and
+   * MAX_PAGE_LIMIT rows, so that each bulk delete is one bounded statement.
+   */
+  protected <K> Set<K> bulkIds(List<K> ids) {
+    Set<K> distinct = new LinkedHashSet<>(ids);
+    if (distinct.isEmpty() || distinct.size() > MAX_PAGE_LIMIT) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+        "ids must name between 1 and %d rows".formatted(MAX_PAGE_LIMIT));
+    }
+    return distinct;
+  }
+
+  private static int pageSize(int limit) {
+    return Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
@@ -33,4 +85,22 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  @ExceptionHandler({ UnknownFieldException.class, FieldValueException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleUnknownFieldException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ OptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleOptimisticLockingFailureException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
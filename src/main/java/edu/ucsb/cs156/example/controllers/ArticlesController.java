@@ -3,8 +3,17 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PatchResult;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,37 +23,102 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
 @RestController
+@VersionedTable("Articles")
 @Slf4j
 public class ArticlesController extends ApiController {
 
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    ArticleSearchService articleSearchService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("/all")
     public Iterable<Articles> allArticles() {
         Iterable<Articles> articles = articlesRepository.findAll();
         return articles;
     }
 
+    @Operation(summary= "Stream all articles as newline-delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamArticles() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonExportService.export(articlesRepository::streamAll));
+    }
+
+    @Operation(summary= "List all articles with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allArticleFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(Articles.class, fields);
+    }
+
+    @Operation(summary= "List articles one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Articles, Long> pageArticles(
+            @Parameter(name="after", description="return rows whose id is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<Articles> rows = articlesRepository.findByIdGreaterThanOrderByIdAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, Articles::getId);
+    }
+
+    @Operation(summary= "Search articles by title, explanation and url host, best match first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public ArticleSearchResults searchArticles(
+            @Parameter(name="q", description="words to search for") @RequestParam String q,
+            @Parameter(name="offset", description="number of matches to skip") @RequestParam(defaultValue="0") int offset,
+            @Parameter(name="limit", description="maximum number of matches to return (at most 1000)") @RequestParam(defaultValue="20") int limit) {
+        return articleSearchService.search(q, Math.max(0, offset), Math.max(1, Math.min(limit, MAX_PAGE_LIMIT)));
+    }
+
     @Operation(summary= "Create a new article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -69,12 +143,14 @@ public class ArticlesController extends ApiController {
         articles.setDateAdded(dateAdded);
 
         Articles savedArticles = articlesRepository.save(articles);
+        articleSearchService.index(savedArticles);
 
         return savedArticles;
     }
 
     @Operation(summary= "Get a single article")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public Articles getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -89,13 +165,24 @@ public class ArticlesController extends ApiController {
     @DeleteMapping("")
     public Object deleteArticle(
             @Parameter(name="id") @RequestParam Long id) {
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        articlesRepository.delete(article);
+        if (articlesRepository.deleteRow(id) == 0) {
+            throw new EntityNotFoundException(Articles.class, id);
+        }
+        articleSearchService.remove(id);
         return genericMessage("Articles with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete many Articles by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteArticles(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        Set<Long> distinct = bulkIds(ids);
+        int deleted = articlesRepository.deleteRows(distinct);
+        distinct.forEach(articleSearchService::remove);
+        return genericMessage("%d of %d Articles rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a single article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -103,17 +190,39 @@ public class ArticlesController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid Articles incoming) {
 
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        // the search index only hears about the change once it has committed
+        Articles article = new TransactionTemplate(transactionManager).execute(status -> {
+            Articles current = articlesRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+            if (incoming.getVersion() != null && !incoming.getVersion().equals(current.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Articles.class, id);
+            }
+
+            current.setTitle(incoming.getTitle());
+            current.setUrl(incoming.getUrl());
+            current.setExplanation(incoming.getExplanation());
+            current.setEmail(incoming.getEmail());
+            current.setDateAdded(incoming.getDateAdded());
+
+            articlesRepository.save(current);
+            return current;
+        });
+        articleSearchService.index(article);
+
+        return article;
+    }
 
-        article.setTitle(incoming.getTitle());
-        article.setUrl(incoming.getUrl());
-        article.setExplanation(incoming.getExplanation());
-        article.setEmail(incoming.getEmail());
-        article.setDateAdded(incoming.getDateAdded());
+    @Operation(summary= "Update only the given fields of an article")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public PatchResult patchArticle(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="version") @RequestParam Long version,
+            @RequestBody Map<String, Object> fields) {
 
-        articlesRepository.save(article);
+        PatchResult result = partialUpdateService.patch(Articles.class, id, version, fields);
+        articleSearchService.patched(result);
 
-        return article;
+        return result;
     }
 }
@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.services.BulkTransferService;
+import edu.ucsb.cs156.example.services.BulkTransferService.Format;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Tag(name = "Bulk import/export (admin only)")
+@RequestMapping("/api/admin/bulk")
+@RestController
+@Slf4j
+public class BulkTransferController extends ApiController {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String APPLICATION_JSONL_VALUE = "application/jsonl";
+
+    @Autowired
+    BulkTransferService bulkTransferService;
+
+    @Operation(summary= "Export a whole table as CSV with a header row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(value = "/{table}", produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            @Parameter(name="table", description="ucsbdates, ucsborganization, ucsbdiningcommons, ucsbdiningcommonsmenuitem, restaurant or Articles") @PathVariable String table) {
+        return export(table, Format.CSV, MediaType.parseMediaType(TEXT_CSV_VALUE), ".csv");
+    }
+
+    @Operation(summary= "Export a whole table as JSON Lines (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(value = "/{table}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportJsonLines(
+            @Parameter(name="table") @PathVariable String table) {
+        return export(table, Format.JSON_LINES, MediaType.APPLICATION_NDJSON, ".jsonl");
+    }
+
+    @Operation(summary= "Import CSV rows with a header row into a table; the body is read as it arrives")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/{table}", consumes = TEXT_CSV_VALUE)
+    public BulkImportReport importCsv(
+            @Parameter(name="table") @PathVariable String table,
+            @Parameter(name="batchSize", description="rows per transaction (at most 10000)") @RequestParam(defaultValue="${app.bulk.batchSize:1000}") int batchSize,
+            InputStream body) throws IOException {
+        return bulkTransferService.importRows(checkTable(table), Format.CSV, body, batchSize);
+    }
+
+    @Operation(summary= "Import JSON Lines (one object per line) into a table; the body is read as it arrives")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/{table}", consumes = { MediaType.APPLICATION_NDJSON_VALUE, APPLICATION_JSONL_VALUE })
+    public BulkImportReport importJsonLines(
+            @Parameter(name="table") @PathVariable String table,
+            @Parameter(name="batchSize", description="rows per transaction (at most 10000)") @RequestParam(defaultValue="${app.bulk.batchSize:1000}") int batchSize,
+            InputStream body) throws IOException {
+        return bulkTransferService.importRows(checkTable(table), Format.JSON_LINES, body, batchSize);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String table, Format format, MediaType type, String extension) {
+        StreamingResponseBody body = bulkTransferService.export(checkTable(table), format);
+        return ResponseEntity.ok()
+                .contentType(type)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(table + extension).build().toString())
+                .body(body);
+    }
+
+    private String checkTable(String table) {
+        if (!bulkTransferService.tables().contains(table)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No bulk import/export for table " + table);
+        }
+        return table;
+    }
+}
@@ -2,7 +2,17 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.HelpRequestQueue;
+import edu.ucsb.cs156.example.models.HelpRequestQueueChanges;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PatchResult;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,37 +24,115 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Tag(name = "HelpRequests")
 @RequestMapping("/api/helprequests")
 @RestController
+@VersionedTable("helprequests")
 @Slf4j
 public class HelpRequestsController extends ApiController {
 
     @Autowired
     HelpRequestRepository helpRequestsRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    HelpRequestQueueService helpRequestQueueService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Operation(summary= "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("/all")
     public Iterable<HelpRequest> allHelpRequests() {
         Iterable<HelpRequest> requests = helpRequestsRepository.findAll();
         return requests;
     }
 
+    @Operation(summary= "Stream all help requests as newline-delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHelpRequests() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonExportService.export(helpRequestsRepository::streamAll));
+    }
+
+    @Operation(summary= "List all help requests with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allHelpRequestFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(HelpRequest.class, fields);
+    }
+
+    @Operation(summary= "List help requests one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<HelpRequest, Long> pageHelpRequests(
+            @Parameter(name="after", description="return rows whose id is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<HelpRequest> rows = helpRequestsRepository.findByIdGreaterThanOrderByIdAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, HelpRequest::getId);
+    }
+
+    @Operation(summary= "List the unsolved help requests, oldest first, with the queue version")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/queue")
+    public HelpRequestQueue helpRequestQueue() {
+        return helpRequestQueueService.snapshot();
+    }
+
+    @Operation(summary= "List the changes to the unsolved queue after a version returned by /queue or a previous call")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/queue/changes")
+    public HelpRequestQueueChanges helpRequestQueueChanges(
+            @Parameter(name="since", description="the last queue version the client has seen") @RequestParam long since) {
+        return helpRequestQueueService.changesSince(since);
+    }
+
+    @Operation(summary= "Server-sent events: a snapshot of the unsolved queue, then each change as it happens")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/queue/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHelpRequestQueue() {
+        return helpRequestQueueService.subscribe();
+    }
+
     @Operation(summary= "Create a new request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -71,12 +159,14 @@ public class HelpRequestsController extends ApiController {
         helpRequest.setSolved(solved);
 
         HelpRequest savedHelpRequest = helpRequestsRepository.save(helpRequest);
+        helpRequestQueueService.saved(savedHelpRequest);
 
         return savedHelpRequest;
     }
 
     @Operation(summary= "Get a help request")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public HelpRequest getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -91,13 +181,24 @@ public class HelpRequestsController extends ApiController {
     @DeleteMapping("")
     public Object deleteHelpRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestsRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestsRepository.delete(helpRequest);
+        if (helpRequestsRepository.deleteRow(id) == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+        }
+        helpRequestQueueService.deleted(id);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete many Help Requests by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteHelpRequests(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        Set<Long> distinct = bulkIds(ids);
+        int deleted = helpRequestsRepository.deleteRows(distinct);
+        distinct.forEach(helpRequestQueueService::deleted);
+        return genericMessage("%d of %d HelpRequest rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -105,18 +206,40 @@ public class HelpRequestsController extends ApiController {
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid HelpRequest incoming) {
 
-        HelpRequest helpRequest = helpRequestsRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        // the queue only hears about the change once it has committed
+        HelpRequest helpRequest = new TransactionTemplate(transactionManager).execute(status -> {
+            HelpRequest current = helpRequestsRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+            if (incoming.getVersion() != null && !incoming.getVersion().equals(current.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(HelpRequest.class, id);
+            }
+
+            current.setRequesterEmail(incoming.getRequesterEmail());
+            current.setTeamId(incoming.getTeamId());
+            current.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
+            current.setRequestTime(incoming.getRequestTime());
+            current.setExplanation(incoming.getExplanation());
+            current.setSolved(incoming.getSolved());
+
+            helpRequestsRepository.save(current);
+            return current;
+        });
+        helpRequestQueueService.saved(helpRequest);
+
+        return helpRequest;
+    }
 
-        helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-        helpRequest.setTeamId(incoming.getTeamId());
-        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-        helpRequest.setRequestTime(incoming.getRequestTime());
-        helpRequest.setExplanation(incoming.getExplanation());
-        helpRequest.setSolved(incoming.getSolved());
+    @Operation(summary= "Update only the given fields of a help request")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public PatchResult patchHelpRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="version") @RequestParam Long version,
+            @RequestBody Map<String, Object> fields) {
 
-        helpRequestsRepository.save(helpRequest);
+        PatchResult result = partialUpdateService.patch(HelpRequest.class, id, version, fields);
+        helpRequestQueueService.patched(result);
 
-        return helpRequest;
+        return result;
     }
 }
\ No newline at end of file
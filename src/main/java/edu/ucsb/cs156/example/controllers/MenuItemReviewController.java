@@ -1,8 +1,15 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,7 +20,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,31 +32,92 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Tag(name = "MenuItemReview")
 @RequestMapping("/api/menuitemreview")
 @RestController
+@VersionedTable("menuitemreview")
 @Slf4j
 public class MenuItemReviewController extends ApiController {
 
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    MenuItemRatingService menuItemRatingService;
+
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("/all")
     public Iterable<MenuItemReview> allMenuItemReview() {
         Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
         return reviews;
     }
 
+    @Operation(summary= "Stream all menu item reviews as newline-delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamMenuItemReview() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonExportService.export(menuItemReviewRepository::streamAll));
+    }
+
+    @Operation(summary= "List all menu item reviews with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allMenuItemReviewFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(MenuItemReview.class, fields);
+    }
+
+    @Operation(summary= "List menu item reviews one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<MenuItemReview, Long> pageMenuItemReview(
+            @Parameter(name="after", description="return rows whose id is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<MenuItemReview> rows = menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, MenuItemReview::getId);
+    }
+
+    @Operation(summary= "Get the review count, average stars and star histogram for a menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/rating")
+    public MenuItemRating getRating(
+            @Parameter(name="itemId") @RequestParam long itemId) {
+        return menuItemRatingService.getRating(itemId);
+    }
+
+    @Operation(summary= "List the menu items with the highest average stars")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/toprated")
+    public List<MenuItemRating> topRated(
+            @Parameter(name="limit", description="maximum number of items to return (at most 1000)") @RequestParam(defaultValue="10") int limit,
+            @Parameter(name="minReviews", description="only include items with at least this many reviews") @RequestParam(defaultValue="1") long minReviews) {
+        return menuItemRatingService.topRated(Math.max(1, Math.min(limit, MAX_PAGE_LIMIT)), minReviews);
+    }
+
     @Operation(summary= "Create a new review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public MenuItemReview postMenuItemReview(
             @Parameter(name="itemId") @RequestParam long itemId,
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
@@ -66,12 +137,14 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setComments(comments);
 
         MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        menuItemRatingService.reviewAdded(itemId, stars);
 
         return savedMenuItemReview;
     }
 
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public MenuItemReview getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -84,25 +157,45 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+        MenuItemReview menuItemReview = menuItemReviewRepository.findForUpdate(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
         menuItemReviewRepository.delete(menuItemReview);
+        menuItemRatingService.reviewRemoved(menuItemReview.getItemId(), menuItemReview.getStars());
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete many MenuItemReviews by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    @Transactional
+    public Object deleteMenuItemReviews(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        Set<Long> distinct = bulkIds(ids);
+        // the rating aggregates need each deleted review's item and stars
+        List<MenuItemReview> reviews = menuItemReviewRepository.findForDelete(distinct);
+        int deleted = menuItemReviewRepository.deleteRows(distinct);
+        reviews.forEach(review -> menuItemRatingService.reviewRemoved(review.getItemId(), review.getStars()));
+        return genericMessage("%d of %d MenuItemReview rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid MenuItemReview incoming) {
 
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+        MenuItemReview menuItemReview = menuItemReviewRepository.findForUpdate(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
+        menuItemRatingService.reviewChanged(menuItemReview.getItemId(), menuItemReview.getStars(),
+                incoming.getItemId(), incoming.getStars());
+
         menuItemReview.setItemId(incoming.getItemId());
         menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
         menuItemReview.setStars(incoming.getStars());
@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PatchResult;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,9 +19,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -26,24 +35,54 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Tag(name = "RecommendationRequests")
 @RequestMapping("/api/recommendationrequests")
 @RestController
+@VersionedTable("recommendationrequests")
 @Slf4j
 public class RecommendationRequestController extends ApiController {
 
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    PartialUpdateService partialUpdateService;
+
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("/all")
     public Iterable<RecommendationRequest> allRecommendationRequests() {
         Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
         return requests;
     }
 
+    @Operation(summary= "List all recommendation requests with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allRecommendationRequestFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(RecommendationRequest.class, fields);
+    }
+
+    @Operation(summary= "List recommendation requests one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<RecommendationRequest, Long> pageRecommendationRequests(
+            @Parameter(name="after", description="return rows whose id is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<RecommendationRequest> rows = recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, RecommendationRequest::getId);
+    }
+
     @Operation(summary= "Create a new recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -76,6 +115,7 @@ public class RecommendationRequestController extends ApiController {
 
     @Operation(summary= "Get a single recommendation request")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public RecommendationRequest getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -90,22 +130,35 @@ public class RecommendationRequestController extends ApiController {
     @DeleteMapping("")
     public Object deleteRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        recommendationRequestRepository.delete(recommendationRequest);
+        if (recommendationRequestRepository.deleteRow(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
         return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete many recommendation requests by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteRecommendationRequests(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        Set<Long> distinct = bulkIds(ids);
+        int deleted = recommendationRequestRepository.deleteRows(distinct);
+        return genericMessage("%d of %d RecommendationRequest rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public RecommendationRequest updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid RecommendationRequest incoming) {
 
         RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        if (incoming.getVersion() != null && !incoming.getVersion().equals(recommendationRequest.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(RecommendationRequest.class, id);
+        }
 
         recommendationRequest.setRequesterEmail(incoming.getRequesterEmail());
         recommendationRequest.setProfessorEmail(incoming.getProfessorEmail());
@@ -119,4 +172,15 @@ public class RecommendationRequestController extends ApiController {
         return recommendationRequest;
     }
 
+    @Operation(summary= "Update only the given fields of a recommendation request")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public PatchResult patchRecommendationRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="version") @RequestParam Long version,
+            @RequestBody Map<String, Object> fields) {
+
+        return partialUpdateService.patch(RecommendationRequest.class, id, version, fields);
+    }
+
 }
\ No newline at end of file
@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.NameSuggestion;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.TypeaheadService;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -21,24 +27,65 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Tag(name = "Restaurants")
 @RequestMapping("/api/restaurants")
 @RestController
+@VersionedTable("restaurant")
 public class RestaurantsController extends ApiController {
 
     @Autowired
     RestaurantRepository restaurantRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    TypeaheadService typeaheadService;
+
     @Operation(summary = "List all restaurants")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("/all")
     public Iterable<Restaurant> allRestaurants() {
         Iterable<Restaurant> restaurants = restaurantRepository.findAll();
         return restaurants;
     }
 
+    @Operation(summary = "List all restaurants with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allRestaurantFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(Restaurant.class, fields);
+    }
+
+    @Operation(summary = "List restaurants one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Restaurant, Long> pageRestaurants(
+            @Parameter(name = "after", description = "return rows whose id is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name = "limit", description = "maximum number of rows to return (at most 1000)") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+        List<Restaurant> rows = restaurantRepository.findByIdGreaterThanOrderByIdAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, Restaurant::getId);
+    }
+
+    @Operation(summary = "List restaurants whose name starts with a prefix, in name order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/typeahead")
+    public List<NameSuggestion> restaurantTypeahead(
+            @Parameter(name = "prefix", description = "start of the name, ignoring case") @RequestParam String prefix,
+            @Parameter(name = "limit", description = "maximum number of names to return (at most 1000)") @RequestParam(defaultValue = "10") int limit) {
+        return typeaheadService.suggestRestaurants(prefix, Math.max(1, Math.min(limit, MAX_PAGE_LIMIT)));
+    }
+
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public Restaurant getById(
             @Parameter(name = "id") @RequestParam Long id) {
@@ -60,6 +107,7 @@ public class RestaurantsController extends ApiController {
         restaurant.setDescription(description);
         
         Restaurant savedrestaurant = restaurantRepository.save(restaurant);
+        typeaheadService.restaurantSaved(savedrestaurant);
         return savedrestaurant;
     }
 
@@ -68,13 +116,24 @@ public class RestaurantsController extends ApiController {
     @DeleteMapping("")
     public Object deleteRestaurant(
             @Parameter(name = "id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-        restaurantRepository.delete(restaurant);
+        if (restaurantRepository.deleteRow(id) == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+        }
+        typeaheadService.restaurantDeleted(id);
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
+    @Operation(summary = "Delete many Restaurants by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteRestaurants(
+            @Parameter(name = "ids") @RequestParam List<Long> ids) {
+        Set<Long> distinct = bulkIds(ids);
+        int deleted = restaurantRepository.deleteRows(distinct);
+        distinct.forEach(typeaheadService::restaurantDeleted);
+        return genericMessage("%d of %d Restaurant rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary = "Update a single restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -89,6 +148,7 @@ public class RestaurantsController extends ApiController {
         restaurant.setDescription(incoming.getDescription());
 
         restaurantRepository.save(restaurant);
+        typeaheadService.restaurantSaved(restaurant);
 
         return restaurant;
     }
@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -26,26 +30,71 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Tag(name = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
 @RestController
+@VersionedTable("ucsbdates")
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("/all")
     public Iterable<UCSBDate> allUCSBDates() {
         Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
         return dates;
     }
 
+    @Operation(summary= "List all ucsb dates with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allUCSBDateFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(UCSBDate.class, fields);
+    }
+
+    @Operation(summary= "List ucsb dates one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDate, Long> pageUCSBDates(
+            @Parameter(name="after", description="return rows whose id is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<UCSBDate> rows = ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, UCSBDate::getId);
+    }
+
+    @Operation(summary= "List the dates in one quarter, in date order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter")
+    public List<UCSBDate> quarterUCSBDates(
+            @Parameter(name="quarterYYYYQ", description="quarter in YYYYQ format, e.g. 20241 for Winter 2024") @RequestParam String quarterYYYYQ) {
+        return ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAsc(quarterYYYYQ);
+    }
+
+    @Operation(summary= "List the dates between start and end (inclusive), in date order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    public List<UCSBDate> rangeUCSBDates(
+            @Parameter(name="start", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)") @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @Parameter(name="end", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)") @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return ucsbDateRepository.findAllByLocalDateTimeBetweenOrderByLocalDateTimeAsc(start, end);
+    }
+
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public UCSBDate getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -84,13 +133,22 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        if (ucsbDateRepository.deleteRow(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete many UCSBDates by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteUCSBDates(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        Set<Long> distinct = bulkIds(ids);
+        int deleted = ucsbDateRepository.deleteRows(distinct);
+        return genericMessage("%d of %d UCSBDate rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -2,14 +2,26 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsCache;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,32 +31,102 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
+@VersionedTable("ucsbdiningcommons")
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
 
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    DiningCommonsLocator diningCommonsLocator;
+
+    @Autowired
+    UCSBDiningCommonsCache ucsbDiningCommonsCache;
+
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
-    @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    @ConditionalGet
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> allCommonss() throws JsonProcessingException {
+        // served from a pre-serialized snapshot that is rebuilt after writes
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ucsbDiningCommonsCache.allJson());
+    }
+
+    @Operation(summary= "List all ucsb dining commons with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allCommonsFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(UCSBDiningCommons.class, fields);
+    }
+
+    @Operation(summary= "List ucsb dining commons one page at a time, ordered by code")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommons, String> pageCommons(
+            @Parameter(name="after", description="return rows whose code is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="") String after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<UCSBDiningCommons> rows = ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, UCSBDiningCommons::getCode);
+    }
+
+    @Operation(summary= "List the dining commons nearest to a location, closest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<DiningCommonsDistance> nearestCommons(
+            @Parameter(name="latitude") @RequestParam double latitude,
+            @Parameter(name="longitude") @RequestParam double longitude,
+            @Parameter(name="k", description="number of commons to return (at most 1000)") @RequestParam(defaultValue="5") int k) {
+        checkLocation(latitude, longitude);
+        return diningCommonsLocator.nearest(latitude, longitude, Math.max(1, Math.min(k, MAX_PAGE_LIMIT)));
+    }
+
+    @Operation(summary= "List the dining commons within a radius of a location, closest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/within")
+    public List<DiningCommonsDistance> commonsWithin(
+            @Parameter(name="latitude") @RequestParam double latitude,
+            @Parameter(name="longitude") @RequestParam double longitude,
+            @Parameter(name="radiusMeters") @RequestParam double radiusMeters) {
+        checkLocation(latitude, longitude);
+        if (!(radiusMeters >= 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "radiusMeters must not be negative");
+        }
+        return diningCommonsLocator.within(latitude, longitude, radiusMeters);
+    }
+
+    private static void checkLocation(double latitude, double longitude) {
+        if (!(Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
     }
 
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public UCSBDiningCommons getById(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+        UCSBDiningCommons commons = ucsbDiningCommonsCache.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
         return commons;
@@ -74,6 +156,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        ucsbDiningCommonsCache.saved(code);
+        diningCommonsLocator.rebuild();
 
         return savedCommons;
     }
@@ -83,13 +167,26 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        if (ucsbDiningCommonsRepository.deleteRow(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        ucsbDiningCommonsCache.deleted(code);
+        diningCommonsLocator.rebuild();
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
+    @Operation(summary= "Delete many UCSBDiningCommons by code")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteManyCommons(
+            @Parameter(name="codes") @RequestParam List<String> codes) {
+        Set<String> distinct = bulkIds(codes);
+        int deleted = ucsbDiningCommonsRepository.deleteRows(distinct);
+        distinct.forEach(ucsbDiningCommonsCache::deleted);
+        diningCommonsLocator.rebuild();
+        return genericMessage("%d of %d UCSBDiningCommons rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -109,6 +206,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(incoming.getLongitude());
 
         ucsbDiningCommonsRepository.save(commons);
+        ucsbDiningCommonsCache.saved(code);
+        diningCommonsLocator.rebuild();
 
         return commons;
     }
@@ -2,7 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.NameSuggestion;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TypeaheadService;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,8 +17,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,26 +34,81 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Tag(name = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/ucsbdiningcommonsmenuitem")
 @RestController
+@VersionedTable("ucsbdiningcommonsmenuitem")
 @Slf4j
 public class UCSBDiningCommonsMenuItemController extends ApiController {
 
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    // Each bulk POST is saved in one transaction, so it is capped like the other bulk endpoints
+    public static final int MAX_BULK_ITEMS = 10 * MAX_PAGE_LIMIT;
+
+    private static final ObjectReader menuItemCsvReader = new CsvMapper()
+            .readerFor(UCSBDiningCommonsMenuItem.class)
+            .with(CsvSchema.emptySchema().withHeader());
+
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TypeaheadService typeaheadService;
+
     @Operation(summary= "List all Menu Items")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("/all")
     public Iterable<UCSBDiningCommonsMenuItem> allUCSBMenuItems() {
         Iterable<UCSBDiningCommonsMenuItem> menuItems = ucsbDiningCommonsMenuItemRepository.findAll();
         return menuItems;
     }
 
+    @Operation(summary= "Stream all Menu Items as newline-delimited JSON (Accept: application/x-ndjson)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUCSBMenuItems() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonExportService.export(ucsbDiningCommonsMenuItemRepository::streamAll));
+    }
+
+    @Operation(summary= "List all Menu Items with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allUCSBMenuItemFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(UCSBDiningCommonsMenuItem.class, fields);
+    }
+
+    @Operation(summary= "List Menu Items one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommonsMenuItem, Long> pageUCSBMenuItems(
+            @Parameter(name="after", description="return rows whose id is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<UCSBDiningCommonsMenuItem> rows = ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, UCSBDiningCommonsMenuItem::getId);
+    }
+
     @Operation(summary= "Create a new Menu Item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -58,12 +126,67 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         ucsbMenuItem.setName(name);
         ucsbMenuItem.setDiningCommonsCode(diningCommonsCode);
         UCSBDiningCommonsMenuItem savedUcsbMenuItem = ucsbDiningCommonsMenuItemRepository.save(ucsbMenuItem);
+        typeaheadService.menuItemSaved(savedUcsbMenuItem);
 
         return savedUcsbMenuItem;
     }
 
+    @Operation(summary= "Create many Menu Items from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<UCSBDiningCommonsMenuItem> postUCSBMenuItems(
+            @RequestBody List<UCSBDiningCommonsMenuItem> incoming) {
+        return saveMenuItems(incoming);
+    }
+
+    @Operation(summary= "Create many Menu Items from CSV with a name,diningCommonsCode,station header row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = TEXT_CSV_VALUE)
+    public List<UCSBDiningCommonsMenuItem> postUCSBMenuItemsCsv(
+            @RequestBody String csv) {
+        List<UCSBDiningCommonsMenuItem> incoming;
+        try {
+            incoming = menuItemCsvReader.<UCSBDiningCommonsMenuItem>readValues(csv).readAll();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed CSV: " + e.getMessage(), e);
+        }
+        return saveMenuItems(incoming);
+    }
+
+    // Any ids in the request are ignored; a single saveAll lets Hibernate
+    // send the inserts as JDBC batches (hibernate.jdbc.batch_size).
+    private List<UCSBDiningCommonsMenuItem> saveMenuItems(List<UCSBDiningCommonsMenuItem> incoming) {
+        if (incoming.size() > MAX_BULK_ITEMS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "at most %d menu items can be posted at once".formatted(MAX_BULK_ITEMS));
+        }
+        List<UCSBDiningCommonsMenuItem> menuItems = new ArrayList<>(incoming.size());
+        for (UCSBDiningCommonsMenuItem item : incoming) {
+            menuItems.add(UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode(item.getDiningCommonsCode())
+                    .name(item.getName())
+                    .station(item.getStation())
+                    .build());
+        }
+        log.info("creating {} menu items", menuItems.size());
+        List<UCSBDiningCommonsMenuItem> saved = new ArrayList<>(menuItems.size());
+        ucsbDiningCommonsMenuItemRepository.saveAll(menuItems).forEach(saved::add);
+        saved.forEach(typeaheadService::menuItemSaved);
+        return saved;
+    }
+
+    @Operation(summary= "List Menu Items whose name starts with a prefix, in name order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/typeahead")
+    public List<NameSuggestion> menuItemTypeahead(
+            @Parameter(name="prefix", description="start of the name, ignoring case") @RequestParam String prefix,
+            @Parameter(name="limit", description="maximum number of names to return (at most 1000)") @RequestParam(defaultValue="10") int limit) {
+        return typeaheadService.suggestMenuItems(prefix, Math.max(1, Math.min(limit, MAX_PAGE_LIMIT)));
+    }
+
     @Operation(summary= "Get a single Menu Item")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public UCSBDiningCommonsMenuItem getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -78,13 +201,24 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem ucsbMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItemRepository.delete(ucsbMenuItem);
+        if (ucsbDiningCommonsMenuItemRepository.deleteRow(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+        }
+        typeaheadService.menuItemDeleted(id);
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete many Menu Items by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteUCSBMenuItems(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        Set<Long> distinct = bulkIds(ids);
+        int deleted = ucsbDiningCommonsMenuItemRepository.deleteRows(distinct);
+        distinct.forEach(typeaheadService::menuItemDeleted);
+        return genericMessage("%d of %d UCSBDiningCommonsMenuItem rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a single Menu Item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -99,6 +233,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         ucsbMenuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
         ucsbMenuItem.setStation(incoming.getStation());
         ucsbDiningCommonsMenuItemRepository.save(ucsbMenuItem);
+        typeaheadService.menuItemSaved(ucsbMenuItem);
 
         return ucsbMenuItem;
     }
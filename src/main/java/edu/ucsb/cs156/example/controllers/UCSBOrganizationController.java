@@ -2,14 +2,23 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
+import edu.ucsb.cs156.example.services.UCSBOrganizationCache;
+import edu.ucsb.cs156.example.interceptors.ConditionalGet;
+import edu.ucsb.cs156.example.interceptors.VersionedTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,21 +31,54 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/UCSBOrganization")
 @RestController
+@VersionedTable("ucsborganization")
 @Slf4j
 public class UCSBOrganizationController extends ApiController {
 
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    UCSBOrganizationCache ucsbOrganizationCache;
+
     @Operation(summary= "List all UCSB Organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
-    @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-        return organizations;
+    @ConditionalGet
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> allOrganizations() throws JsonProcessingException {
+        // served from a pre-serialized snapshot that is rebuilt after writes
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ucsbOrganizationCache.allJson());
+    }
+
+    @Operation(summary= "List all UCSB Organizations with only the requested fields")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
+    @GetMapping(value = "/all", params = "fields")
+    public List<Map<String, Object>> allOrganizationFields(
+            @Parameter(name="fields", description="comma-separated field names; id is always included") @RequestParam String fields) {
+        return fieldProjectionService.findAll(UCSBOrganization.class, fields);
+    }
+
+    @Operation(summary= "List UCSB Organizations one page at a time, ordered by orgCode")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBOrganization, String> pageOrganizations(
+            @Parameter(name="after", description="return rows whose orgCode is greater than this; use nextCursor from the previous page") @RequestParam(defaultValue="") String after,
+            @Parameter(name="limit", description="maximum number of rows to return (at most 1000)") @RequestParam(defaultValue=DEFAULT_PAGE_LIMIT) int limit) {
+        List<UCSBOrganization> rows = ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(after, keysetWindow(limit));
+        return keysetPage(rows, limit, UCSBOrganization::getOrgCode);
     }
 
     @Operation(summary= "Create a new organization")
@@ -57,16 +99,18 @@ public class UCSBOrganizationController extends ApiController {
         organization.setInactive(inactive);
 
         UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
+        ucsbOrganizationCache.saved(orgCode);
 
         return savedOrganization;
     }
 
     @Operation(summary= "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @ConditionalGet
     @GetMapping("")
     public UCSBOrganization getById(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
+        UCSBOrganization organization = ucsbOrganizationCache.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
         return organization;
@@ -77,13 +121,24 @@ public class UCSBOrganizationController extends ApiController {
     @DeleteMapping("")
     public Object deleteOrganization(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        ucsbOrganizationRepository.delete(organization);
+        if (ucsbOrganizationRepository.deleteRow(orgCode) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+        }
+        ucsbOrganizationCache.deleted(orgCode);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 
+    @Operation(summary= "Delete many UCSBOrganizations by orgCode")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/bulk")
+    public Object deleteOrganizations(
+            @Parameter(name="orgCodes") @RequestParam List<String> orgCodes) {
+        Set<String> distinct = bulkIds(orgCodes);
+        int deleted = ucsbOrganizationRepository.deleteRows(distinct);
+        distinct.forEach(ucsbOrganizationCache::deleted);
+        return genericMessage("%d of %d UCSBOrganization rows deleted".formatted(deleted, distinct.size()));
+    }
+
     @Operation(summary= "Update a single organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -100,6 +155,7 @@ public class UCSBOrganizationController extends ApiController {
         organization.setInactive(incoming.getInactive());
 
         ucsbOrganizationRepository.save(organization);
+        ucsbOrganizationCache.saved(orgCode);
 
         return organization;
     }
@@ -7,12 +7,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserAdminService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 
@@ -23,6 +27,9 @@ public class UsersController extends ApiController {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserAdminService userAdminService;
+
     @Autowired
     ObjectMapper mapper;
 
@@ -35,4 +42,13 @@ public class UsersController extends ApiController {
         String body = mapper.writeValueAsString(users);
         return ResponseEntity.ok().body(body);
     }
+
+    @Operation(summary= "Grant or revoke a user's admin rights")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/admin")
+    public User setAdmin(
+            @Parameter(name="id") @RequestParam long id,
+            @Parameter(name="admin") @RequestParam boolean admin) {
+        return userAdminService.setAdmin(id, admin);
+    }
 }
\ No newline at end of file
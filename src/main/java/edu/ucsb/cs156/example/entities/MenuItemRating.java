@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.entities;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Running rating totals for one menu item, kept in step with the
+ * menuitemreview rows for that itemId by MenuItemRatingService.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "menuitemrating")
+@Entity(name = "menuitemrating")
+@Table(indexes = @Index(name = "menuitemrating_average_idx", columnList = "averageStars"))
+public class MenuItemRating {
+  @Id
+  private long itemId;
+
+  private long reviewCount;
+  private long starTotal;
+  private double averageStars;
+
+  private long oneStar;
+  private long twoStars;
+  private long threeStars;
+  private long fourStars;
+  private long fiveStars;
+}
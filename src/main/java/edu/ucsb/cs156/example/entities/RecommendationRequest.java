@@ -2,10 +2,17 @@ package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,6 +23,9 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "recommendationrequests")
 @Entity(name = "recommendationrequests")
 public class RecommendationRequest {
   @Id
@@ -28,4 +38,8 @@ public class RecommendationRequest {
   private LocalDateTime dateRequested;
   private LocalDateTime dateNeeded;
   private boolean done;
+
+  @Version
+  @ColumnDefault("0")
+  private Long version;
 }
\ No newline at end of file
@@ -2,10 +2,16 @@ package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,7 +22,13 @@ import lombok.Builder;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ucsbdates")
 @Entity(name = "ucsbdates")
+@Table(indexes = {
+    @Index(name = "ucsbdates_quarter_date_idx", columnList = "quarterYYYYQ, localDateTime"),
+    @Index(name = "ucsbdates_date_idx", columnList = "localDateTime")
+})
 public class UCSBDate {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
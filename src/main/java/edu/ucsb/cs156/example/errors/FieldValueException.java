@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class FieldValueException extends RuntimeException {
+  public FieldValueException(Class<?> entityType, String field, String problem) {
+    super("%s field %s %s"
+      .formatted(entityType.getSimpleName(), field, problem));
+  }
+}
@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.interceptors;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET handler whose response depends only on the rows of its
+ * controller's VersionedTable.  The response carries an ETag for the table
+ * version, and a request whose If-None-Match still matches gets 304 Not
+ * Modified without the handler running.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+}
@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.interceptors;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Conditional GET for controllers annotated with VersionedTable.
+ *
+ * Each table has an in-memory version that is bumped by every successful
+ * write handled by its controller, once the handler (and so its transaction)
+ * has returned but before the response body is written; the writer therefore
+ * never gets a 304 for the data it just replaced.  ConditionalGet handlers answer with the
+ * ETag W/"epoch-version", where epoch is fixed at startup so that tags from
+ * before a restart never match.  The tag is weak because Tomcat does not gzip
+ * responses that carry a strong one.  When If-None-Match carries the current
+ * tag the request ends here with 304, before any repository is queried.
+ * Anonymous requests always reach the handler, whose own authorization
+ * check then rejects them.
+ */
+@ControllerAdvice
+public class ConditionalGetInterceptor implements HandlerInterceptor, WebMvcConfigurer, ResponseBodyAdvice<Object> {
+
+  private static final Set<String> READ_METHODS = Set.of("GET", "HEAD");
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+  private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(this).addPathPatterns("/api/**");
+  }
+
+  public long version(String table) {
+    return counter(table).get();
+  }
+
+  /** Call after a write to table that did not go through its controller. */
+  public void bump(String table) {
+    counter(table).incrementAndGet();
+  }
+
+  public String etag(String table) {
+    return "W/\"" + epoch + "-" + version(table) + "\"";
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    VersionedTable table = versionedTable(handler);
+    // the handler's @PreAuthorize has not run yet, so never answer anonymous requests here
+    if (table == null
+        || !READ_METHODS.contains(request.getMethod())
+        || !((HandlerMethod) handler).hasMethodAnnotation(ConditionalGet.class)
+        || request.getUserPrincipal() == null) {
+      return true;
+    }
+    // responses are per user; browsers may keep them but must revalidate each time
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+    return !new ServletWebRequest(request, response).checkNotModified(etag(table.value()));
+  }
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return returnType.getContainingClass().isAnnotationPresent(VersionedTable.class);
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+      Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+      ServerHttpResponse response) {
+    HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+    HttpServletResponse servletResponse = ((ServletServerHttpResponse) response).getServletResponse();
+    if (!READ_METHODS.contains(servletRequest.getMethod()) && servletResponse.getStatus() < 400) {
+      bump(returnType.getContainingClass().getAnnotation(VersionedTable.class).value());
+    }
+    return body;
+  }
+
+  private AtomicLong counter(String table) {
+    return versions.computeIfAbsent(table, t -> new AtomicLong());
+  }
+
+  private static VersionedTable versionedTable(Object handler) {
+    if (!(handler instanceof HandlerMethod handlerMethod)) {
+      return null;
+    }
+    return handlerMethod.getBeanType().getAnnotation(VersionedTable.class);
+  }
+}
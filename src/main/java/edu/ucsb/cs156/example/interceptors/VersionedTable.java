@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.interceptors;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the table a controller reads and writes.
+ *
+ * Every successful POST, PUT, PATCH or DELETE handled by the controller bumps
+ * the table's version; see ConditionalGetInterceptor.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface VersionedTable {
+  String value();
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * One page of article search results, best match first.
+ *
+ * total is the number of articles matching any query term; pass
+ * offset + hits.size() as the next offset to fetch the following page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ArticleSearchResults {
+  private long total;
+  private int offset;
+  private List<ArticleSearchHit> hits;
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: every row read was either imported or failed.
+ *
+ * errors lists the failed rows in input order, but only the first
+ * app.bulk.maxReportedErrors of them; failed is always the full count.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkImportReport {
+  private String table;
+  private long rowsRead;
+  private long imported;
+  private long failed;
+  private List<BulkImportError> errors;
+}
@@ -1,22 +1,18 @@
 package edu.ucsb.cs156.example.models;
 
-import lombok.Data;
-import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 import lombok.Builder;
-import lombok.AccessLevel;
 
 
 import org.springframework.security.core.GrantedAuthority;
-import edu.ucsb.cs156.example.entities.User;
 
 import java.util.Collection;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor(access = AccessLevel.PROTECTED)
+// Immutable: one instance is cached per session and shared by its requests,
+// so it holds a copy of the user's fields rather than the User entity
+@Value
 @Builder
 public class CurrentUser {
-  private User user;
-  private Collection<? extends GrantedAuthority> roles;
+  UserSnapshot user;
+  Collection<? extends GrantedAuthority> roles;
 }
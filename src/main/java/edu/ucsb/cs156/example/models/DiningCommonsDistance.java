@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * A dining commons together with its great-circle distance, in meters,
+ * from the point a nearest or within-radius query was made for.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class DiningCommonsDistance {
+  private UCSBDiningCommons commons;
+  private double distanceMeters;
+}
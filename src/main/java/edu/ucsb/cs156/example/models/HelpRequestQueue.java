@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+/**
+ * The unsolved help requests, oldest requestTime first, as of version.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestQueue {
+  private long version;
+  private List<HelpRequest> requests;
+}
@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+/**
+ * The queue changes after a client's last seen version.
+ *
+ * When the server no longer has every event since that version, reset is true
+ * and requests holds the whole queue instead; events is then empty.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestQueueChanges {
+  private long version;
+  private boolean reset;
+  private List<HelpRequestQueueEvent> events;
+  private List<HelpRequest> requests;
+}
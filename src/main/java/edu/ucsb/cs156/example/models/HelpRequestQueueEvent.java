@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+/**
+ * One change to the unsolved help request queue.  helpRequest is the new
+ * state for ADDED and UPDATED, and null for SOLVED and DELETED.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestQueueEvent {
+  public enum Type { ADDED, UPDATED, SOLVED, DELETED }
+
+  private long version;
+  private Type type;
+  private long id;
+  private HelpRequest helpRequest;
+}
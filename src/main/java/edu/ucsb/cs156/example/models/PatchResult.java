@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Result of a PATCH: the row that was updated and its new version, which is
+ * the version to send with the next PATCH or PUT of that row.
+ *
+ * values holds every attribute the UPDATE wrote, the version included,
+ * converted to the attribute types; it is for services that keep a copy of
+ * the row and is not sent to the client.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class PatchResult {
+  private long id;
+  private long version;
+  @JsonIgnore
+  private Map<String, Object> values;
+}
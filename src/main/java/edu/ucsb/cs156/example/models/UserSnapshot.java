@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.User;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A copy of a User row's fields that cannot be modified, so that one
+ * CurrentUser can be shared by every request of a session.  Serializes to
+ * the same JSON as User.
+ */
+@Value
+@Builder
+public class UserSnapshot {
+  long id;
+  String email;
+  String googleSub;
+  String pictureUrl;
+  String fullName;
+  String givenName;
+  String familyName;
+  boolean emailVerified;
+  String locale;
+  String hostedDomain;
+  boolean admin;
+
+  public static UserSnapshot of(User user) {
+    if (user == null) {
+      return null;
+    }
+    return UserSnapshot.builder()
+        .id(user.getId())
+        .email(user.getEmail())
+        .googleSub(user.getGoogleSub())
+        .pictureUrl(user.getPictureUrl())
+        .fullName(user.getFullName())
+        .givenName(user.getGivenName())
+        .familyName(user.getFamilyName())
+        .emailVerified(user.getEmailVerified())
+        .locale(user.getLocale())
+        .hostedDomain(user.getHostedDomain())
+        .admin(user.getAdmin())
+        .build();
+  }
+
+  /** A new, detached User with these fields, which the caller may modify. */
+  public User toUser() {
+    return User.builder()
+        .id(id)
+        .email(email)
+        .googleSub(googleSub)
+        .pictureUrl(pictureUrl)
+        .fullName(fullName)
+        .givenName(givenName)
+        .familyName(familyName)
+        .emailVerified(emailVerified)
+        .locale(locale)
+        .hostedDomain(hostedDomain)
+        .admin(admin)
+        .build();
+  }
+}
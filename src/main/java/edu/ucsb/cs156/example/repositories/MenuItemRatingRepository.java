@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MenuItemRatingRepository extends CrudRepository<MenuItemRating, Long> {
+  // Row lock so that concurrent reviews of the same item apply their deltas one at a time.
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select r from menuitemrating r where r.itemId = :itemId")
+  Optional<MenuItemRating> findForUpdate(@Param("itemId") long itemId);
+
+  List<MenuItemRating> findByReviewCountGreaterThanEqualOrderByAverageStarsDescReviewCountDesc(long minReviews, Pageable pageable);
+}
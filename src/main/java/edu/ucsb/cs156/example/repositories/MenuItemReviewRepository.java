@@ -2,10 +2,44 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
-}
\ No newline at end of file
+public interface MenuItemReviewRepository extends RowDeletingRepository<MenuItemReview, Long> {
+  List<MenuItemReview> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true"),
+      @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+  @Query("select e from menuitemreview e order by e.id")
+  Stream<MenuItemReview> streamAll();
+
+  // Row lock so that concurrent edits of one review move its stars in the rating aggregates one at a time.
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select e from menuitemreview e where e.id = :id")
+  Optional<MenuItemReview> findForUpdate(@Param("id") long id);
+
+  // Row locks so that the rating aggregates see each deleted review exactly once.
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select e from menuitemreview e where e.id in :ids")
+  List<MenuItemReview> findForDelete(@Param("ids") Collection<Long> ids);
+}
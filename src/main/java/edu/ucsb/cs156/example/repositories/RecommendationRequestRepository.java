@@ -3,11 +3,13 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
- 
-}
\ No newline at end of file
+public interface RecommendationRequestRepository extends RowDeletingRepository<RecommendationRequest, Long> {
+  List<RecommendationRequest> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+}
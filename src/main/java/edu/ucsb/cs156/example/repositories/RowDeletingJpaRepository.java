@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.services.RowStatementService;
+
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Base class of every repository (see JpaConfig), adding the
+ * RowDeletingRepository methods to SimpleJpaRepository.  The deletes run
+ * through RowStatementService rather than as JPQL, which would empty the
+ * entity's whole second-level cache region.
+ */
+public class RowDeletingJpaRepository<T, ID> extends SimpleJpaRepository<T, ID>
+    implements RowDeletingRepository<T, ID> {
+
+  private final RowStatementService rowStatements;
+
+  public RowDeletingJpaRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+    super(entityInformation, entityManager);
+    this.rowStatements = new RowStatementService(entityManager);
+  }
+
+  @Override
+  @Transactional
+  public int deleteRow(ID id) {
+    return deleteRows(List.of(id));
+  }
+
+  @Override
+  @Transactional
+  public int deleteRows(Collection<ID> ids) {
+    return rowStatements.delete(getDomainClass(), ids);
+  }
+}
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.Collection;
+
+/**
+ * Deletes by id without loading the rows first; each method returns the
+ * number of rows deleted.  Implemented by RowDeletingJpaRepository, which
+ * evicts only the deleted rows from the second-level cache.
+ */
+@NoRepositoryBean
+public interface RowDeletingRepository<T, ID> extends CrudRepository<T, ID> {
+  int deleteRow(ID id);
+
+  int deleteRows(Collection<ID> ids);
+}
@@ -2,11 +2,35 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
-  Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+public interface UCSBDateRepository extends RowDeletingRepository<UCSBDate, Long> {
+  // Result ids are kept in the query cache; it is invalidated whenever ucsbdates changes.
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  List<UCSBDate> findAllByQuarterYYYYQOrderByLocalDateTimeAsc(String quarterYYYYQ);
+  List<UCSBDate> findAllByLocalDateTimeBetweenOrderByLocalDateTimeAsc(LocalDateTime start, LocalDateTime end);
+  List<UCSBDate> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true"),
+      @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+  @Query("select e from ucsbdates e order by e.id")
+  Stream<UCSBDate> streamAll();
+}
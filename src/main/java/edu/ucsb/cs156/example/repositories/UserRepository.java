@@ -1,12 +1,20 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
+  // The query cache keeps the id and the users region the row, so a warm
+  // lookup by email (login, admin status checks) does not reach the database.
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<User> findByEmail(String email);
 }
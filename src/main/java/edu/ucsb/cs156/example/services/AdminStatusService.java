@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decides whether an email belongs to an admin.
+ *
+ * Emails listed in app.admin.emails are checked against a HashSet; anyone else
+ * is an admin if their users row says so.  That database answer is cached for
+ * app.admin.cache.ttlSeconds so that a burst of logins does not query the
+ * users table once per login.  UserAdminService.setAdmin calls
+ * invalidate(email) whenever it changes a user's admin flag; rows edited
+ * outside the application are picked up once the entry expires.
+ */
+@Slf4j
+@Service("adminStatus")
+public class AdminStatusService {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Value("${app.admin.emails}")
+  private String[] configuredAdminEmails;
+
+  @Value("${app.admin.cache.ttlSeconds:300}")
+  private long cacheTtlSeconds;
+
+  @Value("${app.admin.cache.maximumSize:10000}")
+  private long cacheMaximumSize;
+
+  private Set<String> adminEmails;
+
+  private Cache<String, Boolean> databaseAdmins;
+
+  @PostConstruct
+  void init() {
+    adminEmails = Set.copyOf(Arrays.asList(configuredAdminEmails));
+    databaseAdmins = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+        .maximumSize(cacheMaximumSize)
+        .build();
+  }
+
+  public boolean isConfiguredAdmin(String email) {
+    return adminEmails.contains(email);
+  }
+
+  public boolean isAdmin(String email) {
+    if (isConfiguredAdmin(email)) {
+      return true;
+    }
+    return databaseAdmins.get(email, this::loadAdminFlag);
+  }
+
+  public void invalidate(String email) {
+    databaseAdmins.invalidate(email);
+  }
+
+  private boolean loadAdminFlag(String email) {
+    log.debug("loading admin flag for {}", email);
+    return userRepository.findByEmail(email).map(User::getAdmin).orElse(false);
+  }
+}
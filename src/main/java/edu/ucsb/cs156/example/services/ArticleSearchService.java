@@ -0,0 +1,253 @@
+package edu.ucsb.cs156.example.services;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
+import edu.ucsb.cs156.example.models.PatchResult;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory inverted index over article title, explanation and url host,
+ * ranked with BM25.
+ *
+ * Title terms count TITLE_WEIGHT times and host terms HOST_WEIGHT times
+ * towards an article's term frequencies.  ArticlesController reports every
+ * write through index() and remove(), so only the postings of the changed
+ * article are touched.  A search only visits the postings of its own terms.
+ */
+@Slf4j
+@Service("articleSearch")
+public class ArticleSearchService {
+
+  static final int TITLE_WEIGHT = 3;
+  static final int HOST_WEIGHT = 2;
+
+  // BM25 term frequency saturation and length normalisation
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private record Document(Articles article, Map<String, Integer> termFrequencies, int length) {
+  }
+
+  private record Scored(long id, double score) {
+  }
+
+  private static final Comparator<Scored> BEST_FIRST = Comparator
+      .comparingDouble(Scored::score).reversed()
+      .thenComparingLong(Scored::id);
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Document> documents = new HashMap<>();
+  private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+  private long totalLength;
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void load() {
+    lock.writeLock().lock();
+    try {
+      documents.clear();
+      postings.clear();
+      totalLength = 0;
+      try (Stream<Articles> articles = articlesRepository.streamAll()) {
+        articles.forEach(this::add);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info("article search index loaded with {} articles", documents.size());
+  }
+
+  /** Call after an article has been created or updated. */
+  public void index(Articles article) {
+    lock.writeLock().lock();
+    try {
+      delete(article.getId());
+      add(article);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Call after an article has been patched.  The patch is applied to the
+   * indexed copy; the article is read back only when the index does not hold
+   * the version the patch was made against.
+   */
+  public void patched(PatchResult patch) {
+    lock.writeLock().lock();
+    try {
+      Document document = documents.get(patch.getId());
+      if (document != null && Long.valueOf(patch.getVersion() - 1).equals(document.article().getVersion())) {
+        Articles patched = copy(document.article());
+        PropertyAccessorFactory.forBeanPropertyAccess(patched).setPropertyValues(patch.getValues());
+        delete(patched.getId());
+        add(patched);
+        return;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    articlesRepository.findById(patch.getId()).ifPresent(this::index);
+  }
+
+  /** Call after an article has been deleted. */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      delete(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public ArticleSearchResults search(String query, int offset, int limit) {
+    Set<String> terms = new LinkedHashSet<>();
+    tokenize(query, 1, (term, weight) -> terms.add(term));
+
+    lock.readLock().lock();
+    try {
+      Map<Long, Double> scores = new HashMap<>();
+      int n = documents.size();
+      double averageLength = n == 0 ? 0 : (double) totalLength / n;
+      for (String term : terms) {
+        Map<Long, Integer> matches = postings.getOrDefault(term, Map.of());
+        double idf = Math.log(1 + (n - matches.size() + 0.5) / (matches.size() + 0.5));
+        matches.forEach((id, tf) -> {
+          double norm = K1 * (1 - B + B * documents.get(id).length() / averageLength);
+          scores.merge(id, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+        });
+      }
+
+      // keep only the best offset + limit matches instead of sorting them all
+      long wanted = (long) offset + limit;
+      PriorityQueue<Scored> best = new PriorityQueue<>(BEST_FIRST.reversed());
+      scores.forEach((id, score) -> {
+        best.add(new Scored(id, score));
+        if (best.size() > wanted) {
+          best.poll();
+        }
+      });
+      List<Scored> ranked = new ArrayList<>(best);
+      ranked.sort(BEST_FIRST);
+
+      List<ArticleSearchHit> hits = new ArrayList<>();
+      for (Scored scored : ranked.subList(Math.min(offset, ranked.size()), ranked.size())) {
+        hits.add(ArticleSearchHit.builder()
+            .article(documents.get(scored.id()).article())
+            .score(scored.score())
+            .build());
+      }
+      return ArticleSearchResults.builder()
+          .total(scores.size())
+          .offset(offset)
+          .hits(hits)
+          .build();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void add(Articles article) {
+    Map<String, Integer> termFrequencies = new HashMap<>();
+    TermSink count = (term, weight) -> termFrequencies.merge(term, weight, Integer::sum);
+    tokenize(article.getTitle(), TITLE_WEIGHT, count);
+    tokenize(article.getExplanation(), 1, count);
+    tokenize(host(article.getUrl()), HOST_WEIGHT, count);
+
+    int length = 0;
+    for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+      postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(article.getId(), entry.getValue());
+      length += entry.getValue();
+    }
+    documents.put(article.getId(), new Document(copy(article), termFrequencies, length));
+    totalLength += length;
+  }
+
+  private void delete(long id) {
+    Document document = documents.remove(id);
+    if (document == null) {
+      return;
+    }
+    for (String term : document.termFrequencies().keySet()) {
+      Map<Long, Integer> matches = postings.get(term);
+      matches.remove(id);
+      if (matches.isEmpty()) {
+        postings.remove(term);
+      }
+    }
+    totalLength -= document.length();
+  }
+
+  private static Articles copy(Articles article) {
+    return Articles.builder()
+        .id(article.getId())
+        .title(article.getTitle())
+        .url(article.getUrl())
+        .explanation(article.getExplanation())
+        .email(article.getEmail())
+        .dateAdded(article.getDateAdded())
+        .version(article.getVersion())
+        .build();
+  }
+
+  @FunctionalInterface
+  interface TermSink {
+    void accept(String term, int weight);
+  }
+
+  /** Splits text into lower-case runs of letters and digits. */
+  static void tokenize(String text, int weight, TermSink sink) {
+    if (text == null) {
+      return;
+    }
+    String lower = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lower.length(); i++) {
+      boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        sink.accept(lower.substring(start, i), weight);
+        start = -1;
+      }
+    }
+  }
+
+  /** The host of url, or null when url is missing or has none. */
+  static String host(String url) {
+    if (url == null) {
+      return null;
+    }
+    try {
+      return URI.create(url.strip()).getHost();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,416 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.interceptors.ConditionalGetInterceptor;
+import edu.ucsb.cs156.example.models.BulkImportError;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Admin bulk import and export of whole entity tables, as CSV with a header
+ * row or as JSON Lines (one JSON object per line).
+ *
+ * An import reads its input one row at a time and checks each row.  Rows
+ * that pass are saved in batches of batchSize, one transaction per batch.
+ * When the database rejects a batch, its rows are retried one at a time so
+ * that only the offending rows fail.  Every failed row is reported by line.
+ *
+ * Rows for tables with generated ids are always inserted and any id or
+ * version column is ignored.  UCSBOrganization and UCSBDiningCommons rows replace the row
+ * with the same code, if there is one.  After each batch the caches and
+ * in-memory indexes that the controllers normally maintain are told about
+ * the saved rows, and the table's ETag version is bumped.
+ */
+@Slf4j
+@Service("bulkTransfer")
+public class BulkTransferService {
+
+  public enum Format { CSV, JSON_LINES }
+
+  public static final int MAX_BATCH_SIZE = 10_000;
+
+  private static final TypeReference<Map<String, Object>> ROW = new TypeReference<>() {
+  };
+
+  // columns in field declaration order, like the JSON the controllers return
+  private static final CsvMapper csvMapper = CsvMapper.builder()
+      .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+      .addModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+      .build();
+
+  private static final ObjectReader csvReader = csvMapper
+      .readerForMapOf(String.class)
+      .with(CsvSchema.emptySchema().withHeader());
+
+  /**
+   * How one table is read back and saved.  check returns why a row may not be
+   * saved, or null; saved is called with each batch once it is committed.
+   */
+  private record Table<T>(Class<T> type, boolean generatedId, CrudRepository<T, ?> repository,
+      Supplier<Stream<T>> all, Function<T, String> check, Consumer<List<T>> saved) {
+  }
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  NdjsonExportService ndjsonExportService;
+
+  @Autowired
+  ConditionalGetInterceptor conditionalGetInterceptor;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  RestaurantRepository restaurantRepository;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  UCSBOrganizationCache ucsbOrganizationCache;
+
+  @Autowired
+  UCSBDiningCommonsCache ucsbDiningCommonsCache;
+
+  @Autowired
+  DiningCommonsLocator diningCommonsLocator;
+
+  @Autowired
+  TypeaheadService typeaheadService;
+
+  @Autowired
+  ArticleSearchService articleSearchService;
+
+  @Value("${app.bulk.maxReportedErrors:1000}")
+  int maxReportedErrors;
+
+  private final Map<String, Table<?>> tables = new LinkedHashMap<>();
+  private ObjectMapper rowMapper;
+
+  @PostConstruct
+  void registerTables() {
+    // an unknown column is more likely a typo than something to drop silently
+    rowMapper = mapper.copy().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    tables.put("ucsbdates", new Table<>(UCSBDate.class, true,
+        ucsbDateRepository, ucsbDateRepository::streamAll,
+        date -> missing("quarterYYYYQ", date.getQuarterYYYYQ(), "name", date.getName(),
+            "localDateTime", date.getLocalDateTime()),
+        dates -> { }));
+    tables.put("ucsborganization", new Table<>(UCSBOrganization.class, false,
+        ucsbOrganizationRepository, ucsbOrganizationRepository::streamAll,
+        org -> missing("orgCode", org.getOrgCode(), "orgTranslationShort", org.getOrgTranslationShort()),
+        orgs -> orgs.forEach(org -> ucsbOrganizationCache.saved(org.getOrgCode()))));
+    tables.put("ucsbdiningcommons", new Table<>(UCSBDiningCommons.class, false,
+        ucsbDiningCommonsRepository, ucsbDiningCommonsRepository::streamAll,
+        commons -> missing("code", commons.getCode(), "name", commons.getName()),
+        commons -> {
+          commons.forEach(c -> ucsbDiningCommonsCache.saved(c.getCode()));
+          diningCommonsLocator.rebuild();
+        }));
+    tables.put("ucsbdiningcommonsmenuitem", new Table<>(UCSBDiningCommonsMenuItem.class, true,
+        ucsbDiningCommonsMenuItemRepository, ucsbDiningCommonsMenuItemRepository::streamAll,
+        item -> missing("diningCommonsCode", item.getDiningCommonsCode(), "name", item.getName(),
+            "station", item.getStation()),
+        items -> items.forEach(typeaheadService::menuItemSaved)));
+    tables.put("restaurant", new Table<>(Restaurant.class, true,
+        restaurantRepository, restaurantRepository::streamAll,
+        restaurant -> missing("name", restaurant.getName()),
+        restaurants -> restaurants.forEach(typeaheadService::restaurantSaved)));
+    tables.put("Articles", new Table<>(Articles.class, true,
+        articlesRepository, articlesRepository::streamAll,
+        article -> missing("title", article.getTitle(), "url", article.getUrl(),
+            "email", article.getEmail(), "dateAdded", article.getDateAdded()),
+        articles -> articles.forEach(articleSearchService::index)));
+  }
+
+  /** Names accepted by importRows and export, the same as the ETag table names. */
+  public Set<String> tables() {
+    return tables.keySet();
+  }
+
+  public BulkImportReport importRows(String table, Format format, InputStream in, int batchSize)
+      throws IOException {
+    Import<?> run = new Import<>(table, table(table), Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE)));
+    if (format == Format.CSV) {
+      readCsv(in, run);
+    } else {
+      readJsonLines(in, run);
+    }
+    run.flush();
+    log.info("imported {} of {} {} rows", run.imported, run.rowsRead, table);
+    return BulkImportReport.builder()
+        .table(table)
+        .rowsRead(run.rowsRead)
+        .imported(run.imported)
+        .failed(run.failed)
+        .errors(run.errors)
+        .build();
+  }
+
+  public StreamingResponseBody export(String table, Format format) {
+    Table<?> source = table(table);
+    return format == Format.CSV ? csvExport(source) : ndjsonExportService.export(source.all());
+  }
+
+  private Table<?> table(String name) {
+    Table<?> table = tables.get(name);
+    if (table == null) {
+      throw new IllegalArgumentException("Unknown table " + name);
+    }
+    return table;
+  }
+
+  /** "name is required" for the first name whose value is null or blank, else null. */
+  static String missing(Object... namesAndValues) {
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      Object value = namesAndValues[i + 1];
+      if (value == null || value.toString().isBlank()) {
+        return namesAndValues[i] + " is required";
+      }
+    }
+    return null;
+  }
+
+  private interface RowHandler {
+    void row(long line, Map<String, Object> fields);
+
+    void unreadable(long line, String message);
+  }
+
+  private void readJsonLines(InputStream in, RowHandler handler) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    long line = 0;
+    for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+      line++;
+      if (text.isBlank()) {
+        continue;
+      }
+      Map<String, Object> fields;
+      try {
+        fields = mapper.readValue(text, ROW);
+      } catch (JsonProcessingException e) {
+        handler.unreadable(line, e.getOriginalMessage());
+        continue;
+      }
+      if (fields == null) {
+        handler.unreadable(line, "expected a JSON object");
+        continue;
+      }
+      handler.row(line, fields);
+    }
+  }
+
+  private void readCsv(InputStream in, RowHandler handler) throws IOException {
+    MappingIterator<Map<String, Object>> rows = csvReader.readValues(in);
+    while (rows.hasNextValue()) {
+      long line = rows.getCurrentLocation().getLineNr();
+      Map<String, Object> fields;
+      try {
+        fields = rows.nextValue();
+      } catch (JsonProcessingException e) {
+        handler.unreadable(line, e.getOriginalMessage());
+        continue;
+      }
+      // an empty cell means "not given", like a missing key in JSON
+      fields.values().removeIf(""::equals);
+      handler.row(line, fields);
+    }
+  }
+
+  private final class Import<T> implements RowHandler {
+    private final String name;
+    private final Table<T> table;
+    private final int batchSize;
+    private List<T> batch = new ArrayList<>();
+    private List<Long> batchLines = new ArrayList<>();
+    private final List<BulkImportError> errors = new ArrayList<>();
+    private final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    private long rowsRead;
+    private long imported;
+    private long failed;
+
+    Import(String name, Table<T> table, int batchSize) {
+      this.name = name;
+      this.table = table;
+      this.batchSize = batchSize;
+    }
+
+    @Override
+    public void row(long line, Map<String, Object> fields) {
+      rowsRead++;
+      if (table.generatedId()) {
+        fields.remove("id");
+        fields.remove("version");
+      }
+      T entity;
+      try {
+        entity = rowMapper.convertValue(fields, table.type());
+      } catch (IllegalArgumentException e) {
+        fail(line, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        return;
+      }
+      String problem = table.check().apply(entity);
+      if (problem != null) {
+        fail(line, problem);
+        return;
+      }
+      batch.add(entity);
+      batchLines.add(line);
+      if (batch.size() == batchSize) {
+        flush();
+      }
+    }
+
+    @Override
+    public void unreadable(long line, String message) {
+      rowsRead++;
+      fail(line, message);
+    }
+
+    void flush() {
+      if (batch.isEmpty()) {
+        return;
+      }
+      try {
+        saved(transaction.execute(status -> save(batch)));
+      } catch (DataAccessException | TransactionException e) {
+        for (int i = 0; i < batch.size(); i++) {
+          List<T> row = List.of(batch.get(i));
+          try {
+            saved(transaction.execute(status -> save(row)));
+          } catch (DataAccessException | TransactionException rowException) {
+            fail(batchLines.get(i), NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+          }
+        }
+      }
+      // the saved rows were handed to the hooks, so start new lists rather than clear these
+      batch = new ArrayList<>();
+      batchLines = new ArrayList<>();
+    }
+
+    private List<T> save(List<T> rows) {
+      List<T> saved = new ArrayList<>(rows.size());
+      table.repository().saveAll(rows).forEach(saved::add);
+      return saved;
+    }
+
+    private void saved(List<T> rows) {
+      imported += rows.size();
+      table.saved().accept(rows);
+      conditionalGetInterceptor.bump(name);
+    }
+
+    private void fail(long line, String message) {
+      failed++;
+      if (errors.size() < maxReportedErrors) {
+        errors.add(BulkImportError.builder().line(line).message(message).build());
+      }
+    }
+  }
+
+  private <T> StreamingResponseBody csvExport(Table<T> table) {
+    ObjectWriter writer = csvMapper.writer(csvMapper.schemaFor(table.type()).withHeader())
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    return out -> {
+      // as in NdjsonExportService, the body is written after the controller
+      // returns, so the transaction backing the Stream is opened here
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      transaction.setReadOnly(true);
+      try {
+        transaction.executeWithoutResult(status -> writeCsv(writer, table.all(), out));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    };
+  }
+
+  private <T> void writeCsv(ObjectWriter writer, Supplier<Stream<T>> rows, OutputStream out) {
+    try (Stream<T> stream = rows.get(); SequenceWriter csv = writer.writeValues(out)) {
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        T row = iterator.next();
+        csv.write(row);
+        entityManager.detach(row);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -2,16 +2,20 @@ package edu.ucsb.cs156.example.services;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.UserSnapshot;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -30,55 +34,77 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  @Autowired
+  AdminStatusService adminStatusService;
+
+  // The resolved user and roles are cached per authenticated session, keyed by
+  // the session's Authentication object (weak, identity-compared keys), so that
+  // requests after the first one do not go to the users table.  The entry goes
+  // away when the session does; evictCurrentUser drops it sooner, and
+  // UserAdminService calls it when the user's admin flag changes.
+  private final Cache<Authentication, CurrentUser> currentUsers = Caffeine.newBuilder()
+      .weakKeys()
+      .maximumSize(10_000)
+      .expireAfterAccess(Duration.ofMinutes(30))
+      .build();
+
+  // Built once so that a cache hit does not allocate a capturing lambda per call
+  private final Function<Authentication, CurrentUser> currentUserLoader = authentication -> loadCurrentUser();
 
   public CurrentUser getCurrentUser() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication instanceof OAuth2AuthenticationToken) {
+      return currentUsers.get(authentication, currentUserLoader);
+    }
+    return loadCurrentUser();
+  }
+
+  // The snapshot is shared by every request of the session, so it holds a
+  // copy of the user's fields, and the roles are copied into an immutable
+  // list rather than kept as the token's collection.
+  private CurrentUser loadCurrentUser() {
     CurrentUser cu = CurrentUser.builder()
-      .user(this.getUser())
-      .roles(this.getRoles())
+      .user(UserSnapshot.of(this.getUser()))
+      .roles(List.copyOf(this.getRoles()))
       .build();
-    log.info("getCurrentUser returns {}",cu);
+    log.debug("getCurrentUser returns {}",cu);
     return cu;
   }
 
+  public void evictCurrentUser(String email) {
+    currentUsers.asMap().values().removeIf(cu -> email.equals(cu.getUser().getEmail()));
+  }
+
   
+  // Only the email is needed to find an existing user; the rest of the
+  // profile is read from the principal when the user is first saved.
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
-    String googleSub = oAuthUser.getAttribute("sub");
-    String pictureUrl = oAuthUser.getAttribute("picture");
-    String fullName = oAuthUser.getAttribute("name");
-    String givenName = oAuthUser.getAttribute("given_name");
-    String familyName = oAuthUser.getAttribute("family_name");
-    boolean emailVerified = oAuthUser.getAttribute("email_verified");
-    String locale = oAuthUser.getAttribute("locale");
-    String hostedDomain = oAuthUser.getAttribute("hd");
-
-    java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    log.debug("attrs={}", oAuthUser.getAttributes());
 
     Optional<User> ou = userRepository.findByEmail(email);
     if (ou.isPresent()) {
       User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
+      if (adminStatusService.isConfiguredAdmin(email) && !u.getAdmin()) {
         u.setAdmin(true);
         userRepository.save(u);
+        adminStatusService.invalidate(email);
       }
       return u;
     }
 
     User u = User.builder()
-        .googleSub(googleSub)
+        .googleSub(oAuthUser.getAttribute("sub"))
         .email(email)
-        .pictureUrl(pictureUrl)
-        .fullName(fullName)
-        .givenName(givenName)
-        .familyName(familyName)
-        .emailVerified(emailVerified)
-        .locale(locale)
-        .hostedDomain(hostedDomain)
-        .admin(adminEmails.contains(email))
+        .pictureUrl(oAuthUser.getAttribute("picture"))
+        .fullName(oAuthUser.getAttribute("name"))
+        .givenName(oAuthUser.getAttribute("given_name"))
+        .familyName(oAuthUser.getAttribute("family_name"))
+        .emailVerified(oAuthUser.getAttribute("email_verified"))
+        .locale(oAuthUser.getAttribute("locale"))
+        .hostedDomain(oAuthUser.getAttribute("hd"))
+        .admin(adminStatusService.isConfiguredAdmin(email))
         .build();
     userRepository.save(u);
     return u;
@@ -89,6 +115,10 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     Authentication authentication = securityContext.getAuthentication();
 
     if (authentication instanceof OAuth2AuthenticationToken) {
+      CurrentUser cached = currentUsers.getIfPresent(authentication);
+      if (cached != null) {
+        return cached.getUser().toUser();
+      }
       return getOAuth2AuthenticatedUser(securityContext, authentication);
     }
     return null;
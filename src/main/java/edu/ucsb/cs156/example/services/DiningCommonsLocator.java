@@ -0,0 +1,192 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory k-d tree over the dining commons that have a location.
+ *
+ * Each commons is stored as a point on the unit sphere (x, y, z), so the
+ * straight-line (chord) distance between two points orders them exactly as
+ * the great-circle distance does, and the tree can prune with plain
+ * per-axis comparisons.  Distances are converted back to meters only for
+ * the commons that are returned.
+ *
+ * The tree is immutable; UCSBDiningCommonsController calls rebuild() after
+ * every write and queries always see a complete tree.
+ */
+@Slf4j
+@Service("diningCommonsLocator")
+public class DiningCommonsLocator {
+
+  /** Mean earth radius, in meters. */
+  public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  private volatile KdTree tree = new KdTree(List.of());
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void rebuild() {
+    List<UCSBDiningCommons> located = new ArrayList<>();
+    for (UCSBDiningCommons commons : ucsbDiningCommonsRepository.findAll()) {
+      if (commons.getLatitude() != null && commons.getLongitude() != null) {
+        located.add(commons);
+      }
+    }
+    tree = new KdTree(located);
+    log.debug("dining commons locator rebuilt with {} commons", located.size());
+  }
+
+  /** The k commons closest to (latitude, longitude), nearest first. */
+  public List<DiningCommonsDistance> nearest(double latitude, double longitude, int k) {
+    return tree.nearest(unitVector(latitude, longitude), k);
+  }
+
+  /** Every commons within radiusMeters of (latitude, longitude), nearest first. */
+  public List<DiningCommonsDistance> within(double latitude, double longitude, double radiusMeters) {
+    double angle = Math.min(radiusMeters / EARTH_RADIUS_METERS, Math.PI);
+    double chord = 2 * Math.sin(angle / 2);
+    return tree.within(unitVector(latitude, longitude), chord * chord);
+  }
+
+  static double[] unitVector(double latitude, double longitude) {
+    double phi = Math.toRadians(latitude);
+    double lambda = Math.toRadians(longitude);
+    double cosPhi = Math.cos(phi);
+    return new double[] { cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda), Math.sin(phi) };
+  }
+
+  static double meters(double chordSquared) {
+    // clamp rounding error so that asin stays defined for antipodal points
+    double halfChord = Math.min(Math.sqrt(chordSquared) / 2, 1.0);
+    return 2 * EARTH_RADIUS_METERS * Math.asin(halfChord);
+  }
+
+  private record Candidate(UCSBDiningCommons commons, double chordSquared) {
+  }
+
+  private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::chordSquared);
+
+  /**
+   * Balanced k-d tree laid out in a single array: the node for the range
+   * [lo, hi) is the median element at (lo + hi) / 2, split on axis depth % 3.
+   */
+  private static final class KdTree {
+    private final UCSBDiningCommons[] commons;
+    private final double[][] points;
+
+    KdTree(List<UCSBDiningCommons> located) {
+      int n = located.size();
+      Integer[] order = new Integer[n];
+      double[][] vectors = new double[n][];
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+        vectors[i] = unitVector(located.get(i).getLatitude(), located.get(i).getLongitude());
+      }
+      build(order, vectors, 0, n, 0);
+      commons = new UCSBDiningCommons[n];
+      points = new double[n][];
+      for (int i = 0; i < n; i++) {
+        commons[i] = located.get(order[i]);
+        points[i] = vectors[order[i]];
+      }
+    }
+
+    private static void build(Integer[] order, double[][] vectors, int lo, int hi, int depth) {
+      if (hi - lo < 2) {
+        return;
+      }
+      int axis = depth % 3;
+      Arrays.sort(order, lo, hi, Comparator.comparingDouble(i -> vectors[i][axis]));
+      int mid = (lo + hi) >>> 1;
+      build(order, vectors, lo, mid, depth + 1);
+      build(order, vectors, mid + 1, hi, depth + 1);
+    }
+
+    List<DiningCommonsDistance> nearest(double[] target, int k) {
+      PriorityQueue<Candidate> best = new PriorityQueue<>(NEAREST_FIRST.reversed());
+      if (k > 0) {
+        nearest(target, k, best, 0, commons.length, 0);
+      }
+      return results(new ArrayList<>(best));
+    }
+
+    private void nearest(double[] target, int k, PriorityQueue<Candidate> best, int lo, int hi, int depth) {
+      if (lo >= hi) {
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      double distance = chordSquared(points[mid], target);
+      if (best.size() < k) {
+        best.add(new Candidate(commons[mid], distance));
+      } else if (distance < best.peek().chordSquared()) {
+        best.poll();
+        best.add(new Candidate(commons[mid], distance));
+      }
+      double offset = target[depth % 3] - points[mid][depth % 3];
+      boolean leftFirst = offset < 0;
+      nearest(target, k, best, leftFirst ? lo : mid + 1, leftFirst ? mid : hi, depth + 1);
+      if (best.size() < k || offset * offset < best.peek().chordSquared()) {
+        nearest(target, k, best, leftFirst ? mid + 1 : lo, leftFirst ? hi : mid, depth + 1);
+      }
+    }
+
+    List<DiningCommonsDistance> within(double[] target, double limit) {
+      List<Candidate> found = new ArrayList<>();
+      within(target, limit, found, 0, commons.length, 0);
+      return results(found);
+    }
+
+    private void within(double[] target, double limit, List<Candidate> found, int lo, int hi, int depth) {
+      if (lo >= hi) {
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      double distance = chordSquared(points[mid], target);
+      if (distance <= limit) {
+        found.add(new Candidate(commons[mid], distance));
+      }
+      double offset = target[depth % 3] - points[mid][depth % 3];
+      if (offset <= 0 || offset * offset <= limit) {
+        within(target, limit, found, lo, mid, depth + 1);
+      }
+      if (offset >= 0 || offset * offset <= limit) {
+        within(target, limit, found, mid + 1, hi, depth + 1);
+      }
+    }
+
+    private static double chordSquared(double[] a, double[] b) {
+      double dx = a[0] - b[0];
+      double dy = a[1] - b[1];
+      double dz = a[2] - b[2];
+      return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static List<DiningCommonsDistance> results(List<Candidate> candidates) {
+      candidates.sort(NEAREST_FIRST);
+      List<DiningCommonsDistance> results = new ArrayList<>(candidates.size());
+      for (Candidate candidate : candidates) {
+        results.add(DiningCommonsDistance.builder()
+            .commons(candidate.commons())
+            .distanceMeters(meters(candidate.chordSquared()))
+            .build());
+      }
+      return results;
+    }
+  }
+}
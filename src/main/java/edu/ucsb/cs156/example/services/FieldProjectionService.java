@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sparse fieldsets for the /all listings: selects only the requested columns
+ * of an entity, so wide text columns that a list view does not show are
+ * neither read from the database nor serialized.
+ *
+ * Field names are the entity's attribute names, which are also its JSON
+ * property names.  They are checked against the JPA metamodel before they go
+ * into the query; an unknown or non-column name is an UnknownFieldException.
+ * The id is always returned, first, and rows come back in id order.
+ */
+@Service("fieldProjection")
+public class FieldProjectionService {
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Transactional(readOnly = true)
+  public List<Map<String, Object>> findAll(Class<?> entity, String fields) {
+    EntityType<?> type = entityManager.getMetamodel().entity(entity);
+    List<String> columns = columns(type, fields);
+    String jpql = columns.stream()
+        .map(column -> "e." + column)
+        .collect(Collectors.joining(", ", "select ", " from " + type.getName() + " e order by e." + columns.get(0)));
+
+    List<Tuple> rows = entityManager.createQuery(jpql, Tuple.class).getResultList();
+    List<Map<String, Object>> projected = new ArrayList<>(rows.size());
+    for (Tuple row : rows) {
+      Map<String, Object> values = new LinkedHashMap<>();
+      for (int i = 0; i < columns.size(); i++) {
+        values.put(columns.get(i), row.get(i));
+      }
+      projected.add(values);
+    }
+    return projected;
+  }
+
+  /** The id attribute followed by each distinct requested field, in request order. */
+  static List<String> columns(EntityType<?> type, String fields) {
+    Set<String> basic = new HashSet<>();
+    String id = null;
+    for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+      if (attribute.getPersistentAttributeType() == PersistentAttributeType.BASIC) {
+        basic.add(attribute.getName());
+      }
+      if (attribute.isId()) {
+        id = attribute.getName();
+      }
+    }
+
+    Set<String> columns = new LinkedHashSet<>();
+    columns.add(id);
+    for (String field : fields.split(",")) {
+      String name = field.trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      if (!basic.contains(name)) {
+        throw new UnknownFieldException(type.getJavaType(), name);
+      }
+      columns.add(name);
+    }
+    return new ArrayList<>(columns);
+  }
+}
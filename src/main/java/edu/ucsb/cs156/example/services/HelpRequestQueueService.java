@@ -0,0 +1,269 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestQueue;
+import edu.ucsb.cs156.example.models.HelpRequestQueueChanges;
+import edu.ucsb.cs156.example.models.HelpRequestQueueEvent;
+import edu.ucsb.cs156.example.models.PatchResult;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory queue of unsolved help requests, ordered by (requestTime, id).
+ *
+ * HelpRequestsController reports every write here.  Each change bumps the
+ * queue version, is kept in a bounded event log for "changes since version N"
+ * queries, and is pushed to every open server-sent event stream.  Nothing is
+ * sent or queried while the queue is not changing.
+ *
+ * Streams are written by a single sender thread.  Each change is handed to
+ * it while the lock is held, so every stream gets changes in version order,
+ * and a new stream's snapshot is queued the same way before the stream joins
+ * the subscribers, so it gets exactly the changes after its snapshot.  A slow
+ * client holds up only the sender, not the requests writing to the queue.
+ */
+@Slf4j
+@Service("helpRequestQueue")
+public class HelpRequestQueueService {
+
+  public static final String SNAPSHOT_EVENT = "snapshot";
+  public static final String CHANGE_EVENT = "change";
+
+  private record QueueKey(LocalDateTime requestTime, long id) {
+  }
+
+  private static final Comparator<QueueKey> QUEUE_ORDER = Comparator
+      .comparing(QueueKey::requestTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparingLong(QueueKey::id);
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Value("${app.helpRequestQueue.eventLogSize:1000}")
+  int eventLogSize;
+
+  @Value("${app.helpRequestQueue.streamTimeoutSeconds:1800}")
+  long streamTimeoutSeconds;
+
+  private final NavigableMap<QueueKey, HelpRequest> unsolved = new TreeMap<>(QUEUE_ORDER);
+  private final Map<Long, QueueKey> keysById = new HashMap<>();
+  private final Deque<HelpRequestQueueEvent> eventLog = new ArrayDeque<>();
+  private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+  private long version;
+
+  private final ExecutorService senderThread = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "help-request-queue-sender");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Tests replace it to send on the calling thread
+  Executor sender = senderThread;
+
+  @PreDestroy
+  public void shutdown() {
+    senderThread.shutdownNow();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    List<HelpRequest> requests = helpRequestRepository.findAllBySolvedFalse();
+    synchronized (this) {
+      unsolved.clear();
+      keysById.clear();
+      // clients holding an older version must reload the whole queue
+      eventLog.clear();
+      version++;
+      requests.forEach(this::put);
+    }
+    log.info("help request queue loaded with {} unsolved requests", requests.size());
+  }
+
+  public synchronized HelpRequestQueue snapshot() {
+    return HelpRequestQueue.builder()
+        .version(version)
+        .requests(new ArrayList<>(unsolved.values()))
+        .build();
+  }
+
+  public synchronized HelpRequestQueueChanges changesSince(long since) {
+    long oldestAvailable = eventLog.isEmpty() ? version : eventLog.peekFirst().getVersion() - 1;
+    if (since < oldestAvailable || since > version) {
+      return HelpRequestQueueChanges.builder()
+          .version(version)
+          .reset(true)
+          .events(List.of())
+          .requests(new ArrayList<>(unsolved.values()))
+          .build();
+    }
+    // the log holds consecutive versions, so the newest (version - since) events are the ones missed
+    List<HelpRequestQueueEvent> logged = new ArrayList<>(eventLog);
+    List<HelpRequestQueueEvent> events = new ArrayList<>(logged.subList(logged.size() - (int) (version - since), logged.size()));
+    return HelpRequestQueueChanges.builder()
+        .version(version)
+        .events(events)
+        .build();
+  }
+
+  /** Call after a help request has been created or updated. */
+  public synchronized void saved(HelpRequest helpRequest) {
+    boolean queued = keysById.containsKey(helpRequest.getId());
+    if (helpRequest.getSolved()) {
+      if (!queued) {
+        return;
+      }
+      remove(helpRequest.getId());
+      broadcast(record(HelpRequestQueueEvent.Type.SOLVED, helpRequest.getId(), null));
+    } else {
+      remove(helpRequest.getId());
+      HelpRequest copy = put(helpRequest);
+      broadcast(record(queued ? HelpRequestQueueEvent.Type.UPDATED : HelpRequestQueueEvent.Type.ADDED,
+          helpRequest.getId(), copy));
+    }
+  }
+
+  /**
+   * Call after a help request has been patched.  The patch is applied to the
+   * queued copy; the row is read back only when it is not queued and the
+   * patch may have reopened it, or when the copy is not the version the
+   * patch was made against.
+   */
+  public void patched(PatchResult patch) {
+    synchronized (this) {
+      QueueKey key = keysById.get(patch.getId());
+      if (key == null && !Boolean.FALSE.equals(patch.getValues().get("solved"))) {
+        // solved before and still solved
+        return;
+      }
+      HelpRequest queued = key == null ? null : unsolved.get(key);
+      if (queued != null && Long.valueOf(patch.getVersion() - 1).equals(queued.getVersion())) {
+        HelpRequest patched = copy(queued);
+        PropertyAccessorFactory.forBeanPropertyAccess(patched).setPropertyValues(patch.getValues());
+        saved(patched);
+        return;
+      }
+    }
+    helpRequestRepository.findById(patch.getId()).ifPresent(this::saved);
+  }
+
+  /** Call after a help request has been deleted. */
+  public synchronized void deleted(long id) {
+    if (!keysById.containsKey(id)) {
+      return;
+    }
+    remove(id);
+    broadcast(record(HelpRequestQueueEvent.Type.DELETED, id, null));
+  }
+
+  /**
+   * Opens a server-sent event stream that starts with a "snapshot" event
+   * holding the current queue, followed by one "change" event per change.
+   */
+  public SseEmitter subscribe() {
+    return subscribe(new SseEmitter(TimeUnit.SECONDS.toMillis(streamTimeoutSeconds)));
+  }
+
+  SseEmitter subscribe(SseEmitter emitter) {
+    emitter.onCompletion(() -> subscribers.remove(emitter));
+    emitter.onTimeout(() -> subscribers.remove(emitter));
+    emitter.onError(e -> subscribers.remove(emitter));
+    synchronized (this) {
+      HelpRequestQueue snapshot = snapshot();
+      sender.execute(() -> {
+        if (send(emitter, SseEmitter.event().name(SNAPSHOT_EVENT).data(snapshot))) {
+          subscribers.add(emitter);
+        }
+      });
+    }
+    return emitter;
+  }
+
+  private HelpRequest put(HelpRequest helpRequest) {
+    HelpRequest copy = copy(helpRequest);
+    QueueKey key = new QueueKey(copy.getRequestTime(), copy.getId());
+    unsolved.put(key, copy);
+    keysById.put(copy.getId(), key);
+    return copy;
+  }
+
+  private static HelpRequest copy(HelpRequest helpRequest) {
+    return HelpRequest.builder()
+        .id(helpRequest.getId())
+        .requesterEmail(helpRequest.getRequesterEmail())
+        .teamId(helpRequest.getTeamId())
+        .tableOrBreakoutRoom(helpRequest.getTableOrBreakoutRoom())
+        .requestTime(helpRequest.getRequestTime())
+        .explanation(helpRequest.getExplanation())
+        .solved(helpRequest.getSolved())
+        .version(helpRequest.getVersion())
+        .build();
+  }
+
+  private void remove(long id) {
+    QueueKey key = keysById.remove(id);
+    if (key != null) {
+      unsolved.remove(key);
+    }
+  }
+
+  private HelpRequestQueueEvent record(HelpRequestQueueEvent.Type type, long id, HelpRequest helpRequest) {
+    HelpRequestQueueEvent event = HelpRequestQueueEvent.builder()
+        .version(++version)
+        .type(type)
+        .id(id)
+        .helpRequest(helpRequest)
+        .build();
+    eventLog.addLast(event);
+    while (eventLog.size() > eventLogSize) {
+      eventLog.removeFirst();
+    }
+    return event;
+  }
+
+  // called with the lock held, so that changes reach the sender in version order
+  private void broadcast(HelpRequestQueueEvent event) {
+    sender.execute(() -> {
+      for (SseEmitter emitter : subscribers) {
+        send(emitter, SseEmitter.event().name(CHANGE_EVENT).id(Long.toString(event.getVersion())).data(event));
+      }
+    });
+  }
+
+  private boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+    try {
+      emitter.send(event);
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      // the client went away; its emitter is finished
+      subscribers.remove(emitter);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package edu.ucsb.cs156.example.services;
+
+import javax.persistence.EntityManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains one MenuItemRating row per reviewed itemId.  Each review write
+ * applies a +1/-1 delta to its item's row, so reading an item's rating is a
+ * primary-key lookup rather than a scan of its reviews.
+ */
+@Slf4j
+@Service("menuItemRatings")
+public class MenuItemRatingService {
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManager entityManager;
+
+  /** The rating for itemId; an item with no reviews has a zero rating. */
+  public MenuItemRating getRating(long itemId) {
+    return menuItemRatingRepository.findById(itemId).orElseGet(() -> emptyRating(itemId));
+  }
+
+  public List<MenuItemRating> topRated(int limit, long minReviews) {
+    return menuItemRatingRepository.findByReviewCountGreaterThanEqualOrderByAverageStarsDescReviewCountDesc(
+        Math.max(1, minReviews), PageRequest.of(0, limit));
+  }
+
+  @Transactional
+  public void reviewAdded(long itemId, int stars) {
+    Optional<MenuItemRating> found = menuItemRatingRepository.findForUpdate(itemId);
+    if (found.isEmpty()) {
+      // there is no row to lock yet, so create it first and then lock it
+      insertEmptyRating(itemId);
+      found = menuItemRatingRepository.findForUpdate(itemId);
+    }
+    MenuItemRating rating = found.orElseThrow();
+    apply(rating, stars, 1);
+    menuItemRatingRepository.save(rating);
+  }
+
+  @Transactional
+  public void reviewRemoved(long itemId, int stars) {
+    menuItemRatingRepository.findForUpdate(itemId).ifPresent(rating -> {
+      apply(rating, stars, -1);
+      if (rating.getReviewCount() <= 0) {
+        menuItemRatingRepository.delete(rating);
+      } else {
+        menuItemRatingRepository.save(rating);
+      }
+    });
+  }
+
+  @Transactional
+  public void reviewChanged(long oldItemId, int oldStars, long newItemId, int newStars) {
+    if (oldItemId == newItemId && oldStars == newStars) {
+      return;
+    }
+    // take the row locks in itemId order so two opposite moves cannot deadlock;
+    // on the same item add first, so that an item's only review never deletes its row
+    if (oldItemId < newItemId) {
+      reviewRemoved(oldItemId, oldStars);
+      reviewAdded(newItemId, newStars);
+    } else {
+      reviewAdded(newItemId, newStars);
+      reviewRemoved(oldItemId, oldStars);
+    }
+  }
+
+  /**
+   * Fills the aggregate table from the reviews on startup when it is empty,
+   * e.g. the first time this runs against an existing database.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void rebuildIfEmpty() {
+    if (menuItemRatingRepository.count() > 0 || menuItemReviewRepository.count() == 0) {
+      return;
+    }
+    Map<Long, MenuItemRating> ratings = new HashMap<>();
+    try (Stream<MenuItemReview> reviews = menuItemReviewRepository.streamAll()) {
+      reviews.forEach(review -> apply(
+          ratings.computeIfAbsent(review.getItemId(), MenuItemRatingService::emptyRating), review.getStars(), 1));
+    }
+    menuItemRatingRepository.saveAll(ratings.values());
+    log.info("rebuilt menu item ratings for {} items", ratings.size());
+  }
+
+  /**
+   * Inserts a zero rating for itemId in a transaction of its own, since a
+   * failed statement aborts the whole transaction on PostgreSQL.  When two
+   * first reviews of an item race, one insert fails on the primary key and
+   * both go on to lock the row the other one inserted.
+   */
+  private void insertEmptyRating(long itemId) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    try {
+      // persist rather than save, which would merge over a row inserted meanwhile
+      transaction.executeWithoutResult(status -> entityManager.persist(emptyRating(itemId)));
+    } catch (DataIntegrityViolationException e) {
+      log.debug("rating for item {} was inserted by a concurrent review", itemId);
+    }
+  }
+
+  private static MenuItemRating emptyRating(long itemId) {
+    return MenuItemRating.builder().itemId(itemId).build();
+  }
+
+  private static void apply(MenuItemRating rating, int stars, int delta) {
+    rating.setReviewCount(rating.getReviewCount() + delta);
+    rating.setStarTotal(rating.getStarTotal() + (long) delta * stars);
+    rating.setAverageStars(rating.getReviewCount() == 0 ? 0 : (double) rating.getStarTotal() / rating.getReviewCount());
+    switch (stars) {
+      case 1 -> rating.setOneStar(rating.getOneStar() + delta);
+      case 2 -> rating.setTwoStars(rating.getTwoStars() + delta);
+      case 3 -> rating.setThreeStars(rating.getThreeStars() + delta);
+      case 4 -> rating.setFourStars(rating.getFourStars() + delta);
+      case 5 -> rating.setFiveStars(rating.getFiveStars() + delta);
+      default -> {
+        // out-of-range stars still count toward the total and average
+      }
+    }
+  }
+}
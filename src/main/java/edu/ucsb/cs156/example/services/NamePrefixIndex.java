@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import edu.ucsb.cs156.example.models.NameSuggestion;
+
+/**
+ * Names kept in sorted order under a normalised key, so that all names
+ * starting with a prefix sit next to each other and the first few are found
+ * with one O(log n) seek.
+ *
+ * Keys are the lower-cased, whitespace-collapsed name followed by a NUL and
+ * the id, which keeps duplicate names apart.  Lookups never block; writes
+ * are serialised so that a row's old key is always removed with it.
+ */
+final class NamePrefixIndex {
+
+  private final ConcurrentSkipListMap<String, NameSuggestion> byKey = new ConcurrentSkipListMap<>();
+  private final Map<Long, String> keysById = new ConcurrentHashMap<>();
+
+  synchronized void put(long id, String name) {
+    remove(id);
+    if (name == null) {
+      return;
+    }
+    String key = normalize(name) + '\0' + id;
+    byKey.put(key, NameSuggestion.builder().id(id).name(name).build());
+    keysById.put(id, key);
+  }
+
+  synchronized void remove(long id) {
+    String key = keysById.remove(id);
+    if (key != null) {
+      byKey.remove(key);
+    }
+  }
+
+  synchronized void clear() {
+    byKey.clear();
+    keysById.clear();
+  }
+
+  int size() {
+    return keysById.size();
+  }
+
+  /** Up to limit names starting with prefix (ignoring case), in name order. */
+  List<NameSuggestion> suggest(String prefix, int limit) {
+    String normalized = normalize(prefix);
+    List<NameSuggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+    for (Map.Entry<String, NameSuggestion> entry : byKey.tailMap(normalized).entrySet()) {
+      if (suggestions.size() == limit || !entry.getKey().startsWith(normalized)) {
+        break;
+      }
+      suggestions.add(entry.getValue());
+    }
+    return suggestions;
+  }
+
+  static String normalize(String name) {
+    return name.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+}
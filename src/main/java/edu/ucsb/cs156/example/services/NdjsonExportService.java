@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a repository Stream to the response as newline-delimited JSON
+ * (application/x-ndjson), one entity per line, as rows are read from the
+ * database. Each entity is detached once written so the persistence context
+ * does not grow with the size of the table.
+ *
+ * The repositories' streamAll queries are written for this: with a fetch
+ * size of 500 the rows come from the database in chunks while the Stream is
+ * consumed, which needs the transaction opened here; they are read-only, and
+ * bypass the second-level cache so an export does not evict the hot entries.
+ */
+@Service("ndjsonExport")
+public class NdjsonExportService {
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManager entityManager;
+
+  public <T> StreamingResponseBody export(Supplier<Stream<T>> rows) {
+    return out -> {
+      // The body is written on an async thread after the controller returns,
+      // so the transaction backing the Stream has to be opened here.
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      transaction.setReadOnly(true);
+      try {
+        transaction.executeWithoutResult(status -> write(rows, out));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    };
+  }
+
+  private <T> void write(Supplier<Stream<T>> rows, OutputStream out) {
+    ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    try (Stream<T> stream = rows.get();
+        JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        T row = iterator.next();
+        writer.writeValue(generator, row);
+        generator.writeRaw('\n');
+        entityManager.detach(row);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.FieldValueException;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+import edu.ucsb.cs156.example.models.PatchResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PATCH for entities with a @Version attribute: writes only the supplied
+ * fields with a single UPDATE statement, without reading the row first.
+ *
+ * The statement matches on the id and on the version the client last read,
+ * and bumps the version.  When it updates nothing, one lookup tells a stale
+ * version (ObjectOptimisticLockingFailureException) from a missing row
+ * (EntityNotFoundException).  Field names are checked against the JPA
+ * metamodel before they go into the query, like FieldProjectionService's,
+ * and values are converted to the attribute types by the application's
+ * ObjectMapper, so they take the same JSON forms as in a PUT body.
+ *
+ * The UPDATE runs through RowStatementService, so only this row is evicted
+ * from the second-level cache.  It goes around the persistence context:
+ * callers that keep in-memory copies of rows apply PatchResult.values to
+ * their copy instead of reading the row back.
+ */
+@Service("partialUpdate")
+public class PartialUpdateService {
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  RowStatementService rowStatements;
+
+  @Transactional
+  public PatchResult patch(Class<?> entity, long id, long version, Map<String, Object> fields) {
+    EntityType<?> type = entityManager.getMetamodel().entity(entity);
+    Map<String, SingularAttribute<?, ?>> basic = new HashMap<>();
+    String idName = null;
+    String versionName = null;
+    for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+      if (attribute.isId()) {
+        idName = attribute.getName();
+      } else if (attribute.isVersion()) {
+        versionName = attribute.getName();
+      } else if (attribute.getPersistentAttributeType() == PersistentAttributeType.BASIC) {
+        basic.put(attribute.getName(), attribute);
+      }
+    }
+
+    Map<String, Object> written = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> field : fields.entrySet()) {
+      String name = field.getKey();
+      if (name.equals(idName) || name.equals(versionName)) {
+        throw new FieldValueException(entity, name, "cannot be updated");
+      }
+      SingularAttribute<?, ?> attribute = basic.get(name);
+      if (attribute == null) {
+        throw new UnknownFieldException(entity, name);
+      }
+      written.put(name, convert(entity, attribute, field.getValue()));
+    }
+
+    if (rowStatements.update(entity, id, version, written) == 0) {
+      if (entityManager.find(entity, id) == null) {
+        throw new EntityNotFoundException(entity, id);
+      }
+      throw new ObjectOptimisticLockingFailureException(entity, id);
+    }
+    Map<String, Object> values = new LinkedHashMap<>(written);
+    values.put(versionName, version + 1);
+    return PatchResult.builder().id(id).version(version + 1).values(values).build();
+  }
+
+  private Object convert(Class<?> entity, SingularAttribute<?, ?> attribute, Object value) {
+    Class<?> javaType = attribute.getJavaType();
+    if (value == null && javaType.isPrimitive()) {
+      throw new FieldValueException(entity, attribute.getName(), "cannot be null");
+    }
+    try {
+      return mapper.convertValue(value, javaType);
+    } catch (IllegalArgumentException e) {
+      throw new FieldValueException(entity, attribute.getName(),
+          "must be a " + ClassUtils.resolvePrimitiveIfNecessary(javaType).getSimpleName());
+    }
+  }
+}
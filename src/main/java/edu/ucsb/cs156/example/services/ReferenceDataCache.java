@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.repository.CrudRepository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache in front of a small, rarely-changing reference table.
+ *
+ * Lookups by id are cached for app.referenceData.cache.ttlSeconds, at most
+ * app.referenceData.cache.maximumSize of them.  The whole table is kept as
+ * one pre-serialized JSON array for /all; it is rebuilt on the first read
+ * after a write, or once it is older than the same TTL.  The controller
+ * calls saved() or deleted() after every write.  Hit and miss counts are
+ * published as the "cache.gets" metric, tagged with the cache name.
+ *
+ * Writes should keep loading rows through the repository: the cached rows
+ * are shared between requests and must not be modified.
+ */
+@Slf4j
+public abstract class ReferenceDataCache<T, ID> {
+
+  private record Snapshot(long generation, long builtAtNanos, byte[] json) {
+  }
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  ObjectProvider<MeterRegistry> meterRegistry;
+
+  @Value("${app.referenceData.cache.ttlSeconds:600}")
+  long ttlSeconds;
+
+  @Value("${app.referenceData.cache.maximumSize:1000}")
+  long maximumSize;
+
+  private final String name;
+  private final AtomicLong generation = new AtomicLong();
+  private Cache<ID, Optional<T>> byId;
+  private volatile Snapshot all;
+
+  protected ReferenceDataCache(String name) {
+    this.name = name;
+  }
+
+  protected abstract CrudRepository<T, ID> repository();
+
+  @PostConstruct
+  void init() {
+    byId = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .maximumSize(maximumSize)
+        .recordStats()
+        .build();
+    meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, byId, name));
+  }
+
+  public Optional<T> findById(ID id) {
+    return byId.get(id, key -> repository().findById(key));
+  }
+
+  /** The whole table as a JSON array, in repository findAll() order. */
+  public byte[] allJson() throws JsonProcessingException {
+    Snapshot snapshot = all;
+    return isCurrent(snapshot) ? snapshot.json() : rebuild();
+  }
+
+  /** Call after a row has been created or updated. */
+  public void saved(ID id) {
+    generation.incrementAndGet();
+    byId.invalidate(id);
+  }
+
+  /** Call after a row has been deleted. */
+  public void deleted(ID id) {
+    saved(id);
+  }
+
+  // Concurrent readers that find the snapshot stale wait here for a single rebuild.
+  synchronized byte[] rebuild() throws JsonProcessingException {
+    Snapshot snapshot = all;
+    if (isCurrent(snapshot)) {
+      return snapshot.json();
+    }
+    // read the generation first, so a write that lands during the query
+    // leaves this snapshot stale instead of being lost
+    long current = generation.get();
+    byte[] json = mapper.writeValueAsBytes(repository().findAll());
+    all = new Snapshot(current, System.nanoTime(), json);
+    log.debug("rebuilt {} snapshot, {} bytes", name, json.length);
+    return json;
+  }
+
+  private boolean isCurrent(Snapshot snapshot) {
+    return snapshot != null
+        && snapshot.generation() == generation.get()
+        && System.nanoTime() - snapshot.builtAtNanos() < Duration.ofSeconds(ttlSeconds).toNanos();
+  }
+}
@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.services;
+
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Updates and deletes rows by id with plain SQL on the transaction's
+ * connection, and drops only those rows from the second-level cache.
+ *
+ * Hibernate treats every JPQL UPDATE or DELETE as a bulk operation and
+ * empties the entity's whole cache region afterwards, so a PATCH or delete of
+ * one row sent every other cached row of the table back to the database; a
+ * native query without declared tables empties every region.  Statements
+ * here are built from the entity's Hibernate mapping (table, columns, and the
+ * types that bind the values) and run without Hibernate seeing them.
+ *
+ * As for Hibernate's own single-row writes, the rows are soft-locked in the
+ * cache before the statement runs, and the locks are released and the
+ * table's query-cache results invalidated when the transaction completes.
+ * The lock replaces the cached row, and a transaction that began before the
+ * release cannot put the row it loaded back into the cache, so an old or
+ * deleted row is never served afterwards.
+ *
+ * Only for cached entities mapped to one table with single-column attributes.
+ */
+@Service("rowStatements")
+public class RowStatementService {
+
+  @FunctionalInterface
+  private interface Binder {
+    void bind(PreparedStatement statement) throws SQLException;
+  }
+
+  private final EntityManager entityManager;
+
+  @Autowired
+  public RowStatementService(EntityManager entityManager) {
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Sets the given attributes of the row, and increments its version, if it
+   * is still at {@code version}.  Returns the number of rows updated.
+   */
+  @Transactional
+  public int update(Class<?> entity, Object id, long version, Map<String, Object> values) {
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    AbstractEntityPersister persister = persister(session, entity);
+    String versionColumn = persister.getVersionColumnName();
+    StringBuilder sql = new StringBuilder("update ").append(persister.getTableName()).append(" set ");
+    for (String name : values.keySet()) {
+      sql.append(persister.getPropertyColumnNames(name)[0]).append(" = ?, ");
+    }
+    sql.append(versionColumn).append(" = ").append(versionColumn).append(" + 1 where ")
+        .append(persister.getIdentifierColumnNames()[0]).append(" = ? and ")
+        .append(versionColumn).append(" = ?");
+    return execute(session, persister, List.of(id), sql.toString(), statement -> {
+      int index = 1;
+      for (Map.Entry<String, Object> value : values.entrySet()) {
+        persister.getPropertyType(value.getKey()).nullSafeSet(statement, value.getValue(), index++, session);
+      }
+      persister.getIdentifierType().nullSafeSet(statement, id, index++, session);
+      persister.getVersionType().nullSafeSet(statement, version, index, session);
+    });
+  }
+
+  /** Deletes the rows with the given ids.  Returns the number of rows deleted. */
+  @Transactional
+  public int delete(Class<?> entity, Collection<?> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    AbstractEntityPersister persister = persister(session, entity);
+    String sql = "delete from " + persister.getTableName() + " where "
+        + persister.getIdentifierColumnNames()[0] + " in (" + "?, ".repeat(ids.size() - 1) + "?)";
+    return execute(session, persister, ids, sql, statement -> {
+      int index = 1;
+      for (Object id : ids) {
+        persister.getIdentifierType().nullSafeSet(statement, id, index++, session);
+      }
+    });
+  }
+
+  private static AbstractEntityPersister persister(SessionImplementor session, Class<?> entity) {
+    return (AbstractEntityPersister) session.getFactory().getMetamodel().entityPersister(entity);
+  }
+
+  private static int execute(SessionImplementor session, AbstractEntityPersister persister, Collection<?> ids,
+      String sql, Binder binder) {
+    EntityDataAccess cached = persister.getCacheAccessStrategy();
+    Map<Object, SoftLock> locks = new LinkedHashMap<>();
+    for (Object id : ids) {
+      Object key = cached.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier());
+      locks.put(key, cached.lockItem(session, key, null));
+    }
+    Serializable[] tables = persister.getQuerySpaces();
+    TimestampsCache timestamps = session.getFactory().getCache().getTimestampsCache();
+    timestamps.preInvalidate(tables, session);
+    // registered first so that the locks are released even if the statement fails
+    session.getActionQueue().registerProcess((success, completed) -> {
+      locks.forEach((key, lock) -> cached.unlockItem(completed, key, lock));
+      timestamps.invalidate(tables, completed);
+    });
+    return session.doReturningWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        binder.bind(statement);
+        return statement.executeUpdate();
+      }
+    });
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.NameSuggestion;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Prefix lookups on restaurant and menu item names for typeahead inputs.
+ *
+ * Both indexes are loaded at startup; RestaurantsController and
+ * UCSBDiningCommonsMenuItemController report every write so that they
+ * stay current without reloading.
+ */
+@Slf4j
+@Service("typeahead")
+public class TypeaheadService {
+
+  @Autowired
+  RestaurantRepository restaurantRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  private final NamePrefixIndex restaurants = new NamePrefixIndex();
+  private final NamePrefixIndex menuItems = new NamePrefixIndex();
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void load() {
+    restaurants.clear();
+    restaurantRepository.findAll().forEach(this::restaurantSaved);
+    menuItems.clear();
+    try (Stream<UCSBDiningCommonsMenuItem> items = ucsbDiningCommonsMenuItemRepository.streamAll()) {
+      items.forEach(this::menuItemSaved);
+    }
+    log.info("typeahead loaded with {} restaurants and {} menu items", restaurants.size(), menuItems.size());
+  }
+
+  public List<NameSuggestion> suggestRestaurants(String prefix, int limit) {
+    return restaurants.suggest(prefix, limit);
+  }
+
+  public List<NameSuggestion> suggestMenuItems(String prefix, int limit) {
+    return menuItems.suggest(prefix, limit);
+  }
+
+  /** Call after a restaurant has been created or updated. */
+  public void restaurantSaved(Restaurant restaurant) {
+    restaurants.put(restaurant.getId(), restaurant.getName());
+  }
+
+  /** Call after a restaurant has been deleted. */
+  public void restaurantDeleted(long id) {
+    restaurants.remove(id);
+  }
+
+  /** Call after a menu item has been created or updated. */
+  public void menuItemSaved(UCSBDiningCommonsMenuItem menuItem) {
+    menuItems.put(menuItem.getId(), menuItem.getName());
+  }
+
+  /** Call after a menu item has been deleted. */
+  public void menuItemDeleted(long id) {
+    menuItems.remove(id);
+  }
+}
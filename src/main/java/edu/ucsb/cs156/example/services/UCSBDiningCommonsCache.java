@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@Service("ucsbDiningCommonsCache")
+public class UCSBDiningCommonsCache extends ReferenceDataCache<UCSBDiningCommons, String> {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  public UCSBDiningCommonsCache() {
+    super("ucsbDiningCommons");
+  }
+
+  @Override
+  protected CrudRepository<UCSBDiningCommons, String> repository() {
+    return ucsbDiningCommonsRepository;
+  }
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+@Service("ucsbOrganizationCache")
+public class UCSBOrganizationCache extends ReferenceDataCache<UCSBOrganization, String> {
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  public UCSBOrganizationCache() {
+    super("ucsbOrganizations");
+  }
+
+  @Override
+  protected CrudRepository<UCSBOrganization, String> repository() {
+    return ucsbOrganizationRepository;
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Changes to a user's admin flag.
+ *
+ * AdminStatusService and CurrentUserServiceImpl both cache the flag, so
+ * changes go through setAdmin, which drops the user from both caches.  The
+ * ROLE_ADMIN authority itself is granted at login: a session that is already
+ * open keeps its roles until the user logs in again.
+ */
+@Slf4j
+@Service("userAdmin")
+public class UserAdminService {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Autowired
+  AdminStatusService adminStatusService;
+
+  @Autowired
+  CurrentUserServiceImpl currentUserService;
+
+  public User setAdmin(long id, boolean admin) {
+    User user = userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(User.class, id));
+    user.setAdmin(admin);
+    userRepository.save(user);
+    adminStatusService.invalidate(user.getEmail());
+    currentUserService.evictCurrentUser(user.getEmail());
+    log.info("admin flag of {} set to {}", user.getEmail(), admin);
+    return user;
+  }
+}
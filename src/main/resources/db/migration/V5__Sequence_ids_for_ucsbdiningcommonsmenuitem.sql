@@ -0,0 +1,5 @@
+-- UCSBDiningCommonsMenuItem ids now come from a pooled sequence (allocationSize 50) so inserts can be batched.
+-- Start the sequence past the existing ids; Hibernate hands out the 50 ids ending at each value it reads.
+CREATE SEQUENCE IF NOT EXISTS ucsbdiningcommonsmenuitem_seq INCREMENT BY 50;
+SELECT setval('ucsbdiningcommonsmenuitem_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM ucsbdiningcommonsmenuitem), false);
+ALTER TABLE ucsbdiningcommonsmenuitem ALTER COLUMN id DROP DEFAULT;
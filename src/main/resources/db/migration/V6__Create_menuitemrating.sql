@@ -0,0 +1,13 @@
+-- Per-item rating totals maintained by MenuItemRatingService; filled from menuitemreview on first startup.
+CREATE TABLE IF NOT EXISTS menuitemrating (
+  item_id BIGINT PRIMARY KEY,
+  review_count BIGINT NOT NULL,
+  star_total BIGINT NOT NULL,
+  average_stars DOUBLE PRECISION NOT NULL,
+  one_star BIGINT NOT NULL,
+  two_stars BIGINT NOT NULL,
+  three_stars BIGINT NOT NULL,
+  four_stars BIGINT NOT NULL,
+  five_stars BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS menuitemrating_average_idx ON menuitemrating (average_stars);
@@ -0,0 +1,3 @@
+-- Quarter lookups (/api/ucsbdates/quarter) and date range scans (/api/ucsbdates/range).
+CREATE INDEX IF NOT EXISTS ucsbdates_quarter_date_idx ON ucsbdates (quarteryyyyq, local_date_time);
+CREATE INDEX IF NOT EXISTS ucsbdates_date_idx ON ucsbdates (local_date_time);
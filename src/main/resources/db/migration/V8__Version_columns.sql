@@ -0,0 +1,4 @@
+-- Optimistic locking for PUT and PATCH on the write-heavy tables: each row carries a version that every update bumps.
+ALTER TABLE articles ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+ALTER TABLE helprequests ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+ALTER TABLE recommendationrequests ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * The whole application minus the mock beans under testconfig, for tests
+ * that run it end to end: pass it to @SpringBootTest(classes = ...).  Not
+ * annotated with @Configuration so that no component scan picks it up.
+ */
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = ExampleApplication.class)
+@ComponentScan(basePackageClasses = ExampleApplication.class, excludeFilters = {
+    @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+    @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ExampleApplication.class),
+    @ComponentScan.Filter(type = FilterType.REGEX, pattern = "edu\\.ucsb\\.cs156\\.example\\.testconfig\\..*") })
+public class IntegrationTestApplication {
+}
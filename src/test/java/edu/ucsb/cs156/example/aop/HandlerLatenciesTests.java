@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.controllers.ArticlesController;
+
+public class HandlerLatenciesTests {
+
+        @Test
+        public void records_counts_errors_and_percentiles_per_handler() throws Exception {
+                // arrange
+                HandlerLatencies latencies = new HandlerLatencies();
+                Method allArticles = ArticlesController.class.getMethod("allArticles");
+                Method getById = ArticlesController.class.getMethod("getById", Long.class);
+
+                // act
+                for (int i = 1; i <= 100; i++) {
+                        latencies.record(allArticles, TimeUnit.MILLISECONDS.toNanos(i), false);
+                }
+                latencies.record(getById, TimeUnit.MILLISECONDS.toNanos(5), true);
+                SortedMap<String, HandlerLatencySnapshot> snapshot = latencies.snapshot();
+
+                // assert
+                assertEquals(2, snapshot.size());
+                HandlerLatencySnapshot all = snapshot.get("ArticlesController.allArticles");
+                assertEquals(100, all.getCount());
+                assertEquals(0, all.getErrors());
+                assertEquals(50.0, all.getP50Millis(), 0.1);
+                assertEquals(99.0, all.getP99Millis(), 0.1);
+                assertEquals(100.0, all.getMaxMillis(), 0.1);
+                HandlerLatencySnapshot byId = snapshot.get("ArticlesController.getById");
+                assertEquals(1, byId.getCount());
+                assertEquals(1, byId.getErrors());
+        }
+
+        @Test
+        public void snapshots_accumulate_across_reads() throws Exception {
+                // arrange
+                HandlerLatencies latencies = new HandlerLatencies();
+                Method allArticles = ArticlesController.class.getMethod("allArticles");
+
+                // act
+                latencies.record(allArticles, 1_000_000L, false);
+                latencies.snapshot();
+                latencies.record(allArticles, 3_000_000L, false);
+                HandlerLatencySnapshot snapshot = latencies.snapshot().get("ArticlesController.allArticles");
+
+                // assert
+                assertEquals(2, snapshot.getCount());
+                assertEquals(2.0, snapshot.getMeanMillis(), 0.01);
+                assertTrue(snapshot.getMaxMillis() >= 3.0);
+        }
+}
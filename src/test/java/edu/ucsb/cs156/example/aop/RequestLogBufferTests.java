@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class RequestLogBufferTests {
+
+        @Test
+        public void capacity_is_rounded_up_to_a_power_of_two() {
+                assertEquals(8, new RequestLogBuffer(5).capacity());
+                assertEquals(8, new RequestLogBuffer(8).capacity());
+                assertEquals(2, new RequestLogBuffer(0).capacity());
+        }
+
+        @Test
+        public void entries_are_drained_in_order() {
+                // arrange
+                RequestLogBuffer buffer = new RequestLogBuffer(4);
+                List<String> drained = new ArrayList<>();
+
+                // act
+                buffer.offer("GET", "/api/articles/all", "allArticles", "ArticlesController", 10L);
+                buffer.offer("POST", "/api/articles/post", "postArticle", "ArticlesController", 20L);
+                int count = buffer.drainTo((method, uri, handler, type, nanos) -> drained
+                                .add("%s %s %s %s %d".formatted(method, uri, handler, type, nanos)));
+
+                // assert
+                assertEquals(2, count);
+                assertEquals(List.of(
+                                "GET /api/articles/all allArticles ArticlesController 10",
+                                "POST /api/articles/post postArticle ArticlesController 20"), drained);
+                assertEquals(0, buffer.drainTo((method, uri, handler, type, nanos) -> drained.add("unexpected")));
+        }
+
+        @Test
+        public void offers_are_dropped_and_counted_when_full() {
+                // arrange
+                RequestLogBuffer buffer = new RequestLogBuffer(2);
+
+                // act
+                assertTrue(buffer.offer("GET", "/a", "a", "A", 1L));
+                assertTrue(buffer.offer("GET", "/b", "b", "B", 1L));
+                assertFalse(buffer.offer("GET", "/c", "c", "C", 1L));
+
+                // assert
+                assertEquals(1, buffer.droppedCount());
+                assertEquals(2, buffer.drainTo((method, uri, handler, type, nanos) -> {
+                }));
+                assertTrue(buffer.offer("GET", "/d", "d", "D", 1L));
+        }
+
+        @Test
+        public void a_producer_that_loses_the_race_takes_the_next_position() {
+                // arrange: another producer takes position 0 just before the first claim
+                RequestLogBuffer buffer = new RequestLogBuffer(4) {
+                        boolean raced;
+
+                        @Override
+                        boolean claim(long position) {
+                                if (!raced) {
+                                        raced = true;
+                                        assertTrue(offer("GET", "/rival", "rival", "R", 1L));
+                                }
+                                return super.claim(position);
+                        }
+                };
+                List<String> drained = new ArrayList<>();
+
+                // act
+                assertTrue(buffer.offer("GET", "/a", "a", "A", 2L));
+                buffer.drainTo((method, uri, handler, type, nanos) -> drained.add(uri));
+
+                // assert
+                assertEquals(List.of("/rival", "/a"), drained);
+                assertEquals(0, buffer.droppedCount());
+        }
+
+        @Test
+        public void concurrent_producers_lose_nothing_but_counted_drops() throws Exception {
+                // arrange
+                RequestLogBuffer buffer = new RequestLogBuffer(64);
+                int producers = 4;
+                int perProducer = 10_000;
+                ExecutorService pool = Executors.newFixedThreadPool(producers);
+                CountDownLatch done = new CountDownLatch(producers);
+                AtomicInteger accepted = new AtomicInteger();
+                AtomicInteger drained = new AtomicInteger();
+
+                // act
+                for (int p = 0; p < producers; p++) {
+                        pool.execute(() -> {
+                                for (int i = 0; i < perProducer; i++) {
+                                        if (buffer.offer("GET", "/x", "x", "X", i)) {
+                                                accepted.incrementAndGet();
+                                        }
+                                }
+                                done.countDown();
+                        });
+                }
+                while (done.getCount() > 0) {
+                        drained.addAndGet(buffer.drainTo((method, uri, handler, type, nanos) -> {
+                        }));
+                }
+                drained.addAndGet(buffer.drainTo((method, uri, handler, type, nanos) -> {
+                }));
+                pool.shutdown();
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+
+                // assert
+                assertEquals(accepted.get(), drained.get());
+                assertEquals(producers * perProducer, accepted.get() + buffer.droppedCount());
+        }
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.controllers.ArticlesController;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+
+public class TimingAspectTests {
+
+        TimingAspect timingAspect;
+        LatencyEndpoint latencyEndpoint;
+        ProceedingJoinPoint joinPoint;
+
+        @BeforeEach
+        public void setup() throws Exception {
+                HandlerLatencies handlerLatencies = new HandlerLatencies();
+                timingAspect = new TimingAspect();
+                timingAspect.handlerLatencies = handlerLatencies;
+                latencyEndpoint = new LatencyEndpoint();
+                latencyEndpoint.handlerLatencies = handlerLatencies;
+
+                Method getById = ArticlesController.class.getMethod("getById", Long.class);
+                MethodSignature signature = mock(MethodSignature.class);
+                when(signature.getMethod()).thenReturn(getById);
+                joinPoint = mock(ProceedingJoinPoint.class);
+                when(joinPoint.getSignature()).thenReturn(signature);
+        }
+
+        @Test
+        public void successful_handler_is_counted_and_its_result_returned() throws Throwable {
+                // arrange
+                Articles article = Articles.builder().title("t").build();
+                when(joinPoint.proceed()).thenReturn(article);
+
+                // act
+                Object result = timingAspect.timeControllers(joinPoint);
+
+                // assert
+                assertEquals(article, result);
+                HandlerLatencySnapshot snapshot = latencyEndpoint.latencies().get("ArticlesController.getById");
+                assertEquals(1, snapshot.getCount());
+                assertEquals(0, snapshot.getErrors());
+        }
+
+        @Test
+        public void failing_handler_is_counted_as_an_error_and_rethrown() throws Throwable {
+                // arrange
+                when(joinPoint.proceed()).thenThrow(new EntityNotFoundException(Articles.class, 7L));
+
+                // act
+                assertThrows(EntityNotFoundException.class, () -> timingAspect.timeControllers(joinPoint));
+
+                // assert
+                HandlerLatencySnapshot snapshot = latencyEndpoint.latencies().get("ArticlesController.getById");
+                assertEquals(1, snapshot.getCount());
+                assertEquals(1, snapshot.getErrors());
+        }
+}
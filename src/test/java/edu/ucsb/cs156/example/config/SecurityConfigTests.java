@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ucsb.cs156.example.IntegrationTestApplication;
+
+/**
+ * Runs the whole application, since the actuator endpoints are not part of
+ * a @WebMvcTest, to check that only admins can read them.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:securityconfig;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop" })
+@AutoConfigureMockMvc
+class SecurityConfigTests {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Test
+  void actuator_endpoints_are_forbidden_when_logged_out() throws Exception {
+    mockMvc.perform(get("/actuator/latency")).andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().isForbidden());
+  }
+
+  @Test
+  void actuator_endpoints_are_forbidden_to_users() throws Exception {
+    mockMvc.perform(get("/actuator/latency").with(user("cgaucho").roles("USER")))
+        .andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/metrics/hikaricp.connections.acquire").with(user("cgaucho").roles("USER")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void actuator_endpoints_are_open_to_admins() throws Exception {
+    mockMvc.perform(get("/actuator/latency").with(user("admin").roles("ADMIN", "USER")))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/actuator/metrics").with(user("admin").roles("ADMIN", "USER")))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void other_requests_are_still_permitted_when_logged_out() throws Exception {
+    mockMvc.perform(get("/api/systemInfo")).andExpect(status().isOk());
+  }
+}
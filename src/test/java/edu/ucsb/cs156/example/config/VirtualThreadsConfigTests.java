@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+class VirtualThreadsConfigTests {
+
+  private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+      .withUserConfiguration(VirtualThreadsConfig.class);
+
+  @Test
+  void enabling_virtual_threads_before_java_21_fails_startup() {
+    assumeTrue(Runtime.version().feature() < 21);
+
+    contextRunner.withPropertyValues("app.virtualThreads.enabled=true").run(context -> {
+      assertThat(context).hasFailed();
+      assertThat(context.getStartupFailure())
+          .hasRootCauseInstanceOf(NoSuchMethodException.class)
+          .hasStackTraceContaining("app.virtualThreads.enabled=true needs Java 21 or later");
+    });
+  }
+
+  @Test
+  void virtual_threads_are_off_by_default() {
+    contextRunner.run(context -> assertThat(context).doesNotHaveBean(VirtualThreadsConfig.class));
+  }
+}
@@ -1,21 +1,41 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.models.PatchResult;
+import edu.ucsb.cs156.example.errors.FieldValueException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -26,22 +46,40 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = ArticlesController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, NdjsonExportService.class })
 public class ArticlesControllerTests extends ControllerTestCase {
 
         @MockBean
         ArticlesRepository articlesRepository;
 
+        @MockBean
+        ArticleSearchService articleSearchService;
+
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        PlatformTransactionManager transactionManager;
+
+        @MockBean
+        EntityManager entityManager;
+
         // Tests for GET /api/articles/all
         
         @Test
@@ -99,6 +137,211 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void get_all_is_not_modified_until_an_article_is_written() throws Exception {
+
+                // arrange
+                Articles article = Articles.builder()
+                                .title("TestArticle1")
+                                .url("TestArticle1.com")
+                                .explanation("First_Article_for_testing")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(articlesRepository.save(eq(article))).thenReturn(article);
+
+                // act
+                String etag = mockMvc.perform(get("/api/articles/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "private, no-cache"))
+                                .andReturn().getResponse().getHeader("ETag");
+                mockMvc.perform(get("/api/articles/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(
+                                post("/api/articles/post?title=TestArticle1&url=TestArticle1.com&explanation=First_Article_for_testing&email=TestArticle1@gmail.com&dateAdded=2022-01-03T00:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+                String newEtag = mockMvc.perform(get("/api/articles/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // assert
+                verify(articlesRepository, times(2)).findAll();
+                assertNotEquals(etag, newEtag);
+        }
+
+        @Test
+        public void logged_out_users_cannot_revalidate_get_all() throws Exception {
+                mockMvc.perform(get("/api/articles/all").header("If-None-Match", "\"anything\""))
+                                .andExpect(status().is(403));
+        }
+
+        // Tests for GET /api/articles/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/articles/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403)); // logged out users can't stream all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_as_ndjson() throws Exception {
+
+                // arrange
+
+                Articles first = Articles.builder().id(1L).title("First").build();
+                Articles second = Articles.builder().id(2L).title("Second").build();
+
+                when(articlesRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/articles/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andReturn();
+
+                // assert
+
+                verify(articlesRepository, times(1)).streamAll();
+                verify(entityManager, times(1)).detach(first);
+                verify(entityManager, times(1)).detach(second);
+                String expectedBody = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedBody, responseString);
+        }
+
+        // Tests for GET /api/articles/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/articles/all?fields=title"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "title", "Dining hall hours"));
+                when(fieldProjectionService.findAll(Articles.class, "title")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all?fields=title"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(Articles.class, "title");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void unknown_fields_are_a_bad_request() throws Exception {
+
+                // arrange
+
+                when(fieldProjectionService.findAll(Articles.class, "titel"))
+                                .thenThrow(new UnknownFieldException(Articles.class, "titel"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all?fields=titel"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UnknownFieldException", json.get("type"));
+                assertEquals("Articles has no field titel", json.get("message"));
+        }
+
+        // Tests for GET /api/articles/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/articles/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                Articles first = Articles.builder().id(1L).title("First").build();
+                Articles second = Articles.builder().id(2L).title("Second").build();
+
+                when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articlesRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+                KeysetPage<Articles, Long> expectedPage = KeysetPage.<Articles, Long>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor(1L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                Articles third = Articles.builder().id(3L).title("Third").build();
+
+                when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articlesRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 101));
+                KeysetPage<Articles, Long> expectedPage = KeysetPage.<Articles, Long>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void page_limit_is_clamped_to_allowed_range() throws Exception {
+
+                // act
+                mockMvc.perform(get("/api/articles/page?limit=0"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/articles/page?limit=5000"))
+                                .andExpect(status().isOk());
+
+                // assert
+
+                verify(articlesRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+                verify(articlesRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1001));
+        }
+
         // Tests for POST /api/ucsbdates/post...
 
         @Test
@@ -139,11 +382,62 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(articlesRepository, times(1)).save(articles1);
+                verify(articleSearchService, times(1)).index(articles1);
                 String expectedJson = mapper.writeValueAsString(articles1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/articles/search
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/articles/search?q=spring"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search_articles() throws Exception {
+                // arrange
+
+                Articles article = Articles.builder()
+                                .id(7L)
+                                .title("Spring Boot testing")
+                                .url("https://spring.io/guides")
+                                .explanation("How to test controllers")
+                                .email("cgaucho@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                ArticleSearchResults results = ArticleSearchResults.builder()
+                                .total(1)
+                                .offset(0)
+                                .hits(List.of(ArticleSearchHit.builder().article(article).score(2.5).build()))
+                                .build();
+
+                when(articleSearchService.search("spring testing", 0, 20)).thenReturn(results);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/search?q=spring testing"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleSearchService, times(1)).search("spring testing", 0, 20);
+                assertEquals(mapper.writeValueAsString(results), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_clamps_offset_and_limit() throws Exception {
+                mockMvc.perform(get("/api/articles/search?q=spring&offset=-5&limit=5000"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/articles/search?q=spring&offset=40&limit=0"))
+                                .andExpect(status().isOk());
+
+                verify(articleSearchService, times(1)).search("spring", 0, ApiController.MAX_PAGE_LIMIT);
+                verify(articleSearchService, times(1)).search("spring", 40, 1);
+        }
+
         // Tests for GET /api/articles?id=...
 
         @Test
@@ -209,17 +503,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
         public void admin_can_delete_an_article() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                Articles article = Articles.builder()
-                                .title("TestArticle1")
-                                .url("TestArticle1.com")
-                                .explanation("First Article for testing")
-                                .email("TestArticle1@gmail.com")
-                                .dateAdded(ldt1)
-                                .build();
-
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(article));
+                when(articlesRepository.deleteRow(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,8 +512,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
-                verify(articlesRepository, times(1)).delete(any());
+                verify(articlesRepository, times(1)).deleteRow(15L);
+                verify(articlesRepository, never()).findById(any());
+                verify(articleSearchService, times(1)).remove(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 deleted", json.get("message"));
@@ -241,7 +526,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(articlesRepository.deleteRow(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -250,7 +535,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
+                verify(articlesRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
@@ -297,6 +582,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 // assert
                 verify(articlesRepository, times(1)).findById(67L);
                 verify(articlesRepository, times(1)).save(articleEdited); // should be saved with correct user
+                InOrder committedFirst = inOrder(transactionManager, articleSearchService);
+                committedFirst.verify(transactionManager).commit(any());
+                committedFirst.verify(articleSearchService).index(articleEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -336,4 +624,219 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals("Articles with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_article_at_its_current_version() throws Exception {
+                // arrange
+
+                Articles orig = Articles.builder()
+                                .title("TestArticle1")
+                                .url("TestArticle1.com")
+                                .explanation("First Article for testing")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                Articles edited = Articles.builder()
+                                .title("TestArticle2")
+                                .url("TestArticle2.com")
+                                .explanation("Second Article for testing")
+                                .email("TestArticle2@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2023-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(edited);
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).save(edited);
+                assertEquals(requestBody, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_article_at_a_stale_version() throws Exception {
+                // arrange
+
+                Articles orig = Articles.builder()
+                                .title("TestArticle1")
+                                .url("TestArticle1.com")
+                                .explanation("First Article for testing")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .version(4L)
+                                .build();
+
+                Articles edited = Articles.builder()
+                                .title("TestArticle2")
+                                .url("TestArticle2.com")
+                                .explanation("Second Article for testing")
+                                .email("TestArticle2@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2023-01-03T00:00:00"))
+                                .version(3L)
+                                .build();
+
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(articlesRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for PATCH /api/articles?id=...&version=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/articles?id=67&version=3")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"title\": \"Renamed\"}")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can patch
+
+                verify(partialUpdateService, never()).patch(any(), eq(67L), eq(3L), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_only_the_given_fields() throws Exception {
+                // arrange
+
+                PatchResult patched = PatchResult.builder().id(67L).version(4L)
+                                .values(Map.of("title", "Renamed", "version", 4L)).build();
+                when(partialUpdateService.patch(Articles.class, 67L, 3L, Map.of("title", "Renamed")))
+                                .thenReturn(patched);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/articles?id=67&version=3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"title\": \"Renamed\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(Articles.class, 67L, 3L, Map.of("title", "Renamed"));
+                verify(articlesRepository, never()).save(any());
+                verify(articlesRepository, never()).findById(any());
+                verify(articleSearchService, times(1)).patched(patched);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(67, json.get("id"));
+                assertEquals(4, json.get("version"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_article_at_a_stale_version() throws Exception {
+                // arrange
+
+                when(partialUpdateService.patch(Articles.class, 67L, 3L, Map.of("title", "Renamed")))
+                                .thenThrow(new ObjectOptimisticLockingFailureException(Articles.class, 67L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/articles?id=67&version=3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"title\": \"Renamed\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(articleSearchService, never()).patched(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_the_id_of_an_article() throws Exception {
+                // arrange
+
+                when(partialUpdateService.patch(Articles.class, 67L, 3L, Map.of("id", 5)))
+                                .thenThrow(new FieldValueException(Articles.class, "id", "cannot be updated"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/articles?id=67&version=3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"id\": 5}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles field id cannot be updated", json.get("message"));
+        }
+
+        // Tests for DELETE /api/articles/bulk?ids=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/articles/bulk?ids=15,16,15").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can delete
+
+                verify(articlesRepository, never()).deleteRows(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_by_id_in_one_statement() throws Exception {
+                // arrange
+
+                when(articlesRepository.deleteRows(Set.of(15L, 16L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/articles/bulk?ids=15,16,15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).deleteRows(Set.of(15L, 16L));
+                verify(articlesRepository, never()).findById(any());
+                verify(articleSearchService, times(1)).remove(15L);
+                verify(articleSearchService, times(1)).remove(16L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 Articles rows deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_bulk_delete_no_ids_or_too_many_ids() throws Exception {
+                String tooMany = Stream.iterate(1, i -> i + 1).limit(1001).map(String::valueOf).collect(Collectors.joining(","));
+
+                mockMvc.perform(delete("/api/articles/bulk?ids=").with(csrf()))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(delete("/api/articles/bulk?ids=" + tooMany).with(csrf()))
+                                .andExpect(status().isBadRequest());
+
+                verify(articlesRepository, never()).deleteRows(any());
+        }
 }
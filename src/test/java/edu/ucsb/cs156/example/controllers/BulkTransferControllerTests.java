@@ -0,0 +1,197 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.BulkTransferService;
+import edu.ucsb.cs156.example.services.BulkTransferService.Format;
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.BulkImportError;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebMvcTest(controllers = BulkTransferController.class)
+public class BulkTransferControllerTests extends ControllerTestCase {
+
+        @MockBean
+        BulkTransferService bulkTransferService;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private static final Set<String> TABLES = Set.of("ucsbdates", "restaurant");
+
+        // Tests for GET /api/admin/bulk/{table}
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/admin/bulk/restaurant").accept("text/csv"))
+                                .andExpect(status().is(403)); // logged out users can't export
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/admin/bulk/restaurant").accept("text/csv"))
+                                .andExpect(status().is(403)); // only admins can export
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_a_table_as_csv() throws Exception {
+                // arrange
+
+                when(bulkTransferService.tables()).thenReturn(TABLES);
+                when(bulkTransferService.export("restaurant", Format.CSV))
+                                .thenReturn(out -> out.write("id,name,description\n1,Chipotle,\n".getBytes(StandardCharsets.UTF_8)));
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/admin/bulk/restaurant").accept("text/csv"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("text/csv"))
+                                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"restaurant.csv\""))
+                                .andReturn();
+
+                // assert
+                assertEquals("id,name,description\n1,Chipotle,\n", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_a_table_as_json_lines() throws Exception {
+                // arrange
+
+                when(bulkTransferService.tables()).thenReturn(TABLES);
+                when(bulkTransferService.export("ucsbdates", Format.JSON_LINES))
+                                .thenReturn(out -> out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8)));
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/admin/bulk/ucsbdates").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ucsbdates.jsonl\""))
+                                .andReturn();
+
+                // assert
+                assertEquals("{\"id\":1}\n", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void exporting_an_unknown_table_is_not_found() throws Exception {
+                when(bulkTransferService.tables()).thenReturn(TABLES);
+
+                mockMvc.perform(get("/api/admin/bulk/users").accept("text/csv"))
+                                .andExpect(status().isNotFound());
+
+                verify(bulkTransferService, never()).export(any(), any());
+        }
+
+        // Tests for POST /api/admin/bulk/{table}
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/admin/bulk/restaurant")
+                                .contentType("text/csv")
+                                .content("name\nChipotle\n")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can import
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_csv() throws Exception {
+                // arrange
+
+                BulkImportReport report = BulkImportReport.builder()
+                                .table("restaurant")
+                                .rowsRead(2)
+                                .imported(1)
+                                .failed(1)
+                                .errors(List.of(BulkImportError.builder().line(3).message("name is required").build()))
+                                .build();
+                when(bulkTransferService.tables()).thenReturn(TABLES);
+                ArgumentCaptor<InputStream> body = ArgumentCaptor.forClass(InputStream.class);
+                when(bulkTransferService.importRows(eq("restaurant"), eq(Format.CSV), body.capture(), eq(1000)))
+                                .thenAnswer(invocation -> {
+                                        assertEquals("name,description\nChipotle,burritos\n,nameless\n",
+                                                        new String(body.getValue().readAllBytes(), StandardCharsets.UTF_8));
+                                        return report;
+                                });
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/admin/bulk/restaurant")
+                                .contentType("text/csv")
+                                .content("name,description\nChipotle,burritos\n,nameless\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkTransferService, times(1)).importRows(eq("restaurant"), eq(Format.CSV), any(), eq(1000));
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_json_lines_with_a_batch_size() throws Exception {
+                // arrange
+
+                BulkImportReport report = BulkImportReport.builder()
+                                .table("ucsbdates").rowsRead(1).imported(1).failed(0).errors(List.of()).build();
+                when(bulkTransferService.tables()).thenReturn(TABLES);
+                when(bulkTransferService.importRows(eq("ucsbdates"), eq(Format.JSON_LINES), any(), eq(50))).thenReturn(report);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/admin/bulk/ucsbdates?batchSize=50")
+                                .contentType("application/jsonl")
+                                .content("{\"name\": \"first day\"}\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkTransferService, times(1)).importRows(eq("ucsbdates"), eq(Format.JSON_LINES), any(), eq(50));
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void importing_into_an_unknown_table_is_not_found() throws Exception {
+                when(bulkTransferService.tables()).thenReturn(TABLES);
+
+                mockMvc.perform(post("/api/admin/bulk/users")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n")
+                                .with(csrf()))
+                                .andExpect(status().isNotFound());
+
+                verify(bulkTransferService, never()).importRows(any(), any(), any(), eq(1000));
+        }
+}
@@ -1,21 +1,40 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.HelpRequestQueue;
+import edu.ucsb.cs156.example.models.HelpRequestQueueChanges;
+import edu.ucsb.cs156.example.models.HelpRequestQueueEvent;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.models.PatchResult;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -28,12 +47,14 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = HelpRequestsController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, NdjsonExportService.class })
 public class HelpRequestsControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -42,6 +63,21 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        PlatformTransactionManager transactionManager;
+
+        @MockBean
+        EntityManager entityManager;
+
+        @MockBean
+        HelpRequestQueueService helpRequestQueueService;
+
         // Tests for GET /api/helprequests/all
         
         @Test
@@ -101,6 +137,224 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/helprequests/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/helprequests/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403)); // logged out users can't stream all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_as_ndjson() throws Exception {
+
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().id(1L).teamId("First").build();
+                HelpRequest second = HelpRequest.builder().id(2L).teamId("Second").build();
+
+                when(helpRequestRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/helprequests/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).streamAll();
+                verify(entityManager, times(1)).detach(first);
+                verify(entityManager, times(1)).detach(second);
+                String expectedBody = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedBody, responseString);
+        }
+
+        // Tests for GET /api/helprequests/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/helprequests/all?fields=teamId"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "teamId", "s22-5pm-3"));
+                when(fieldProjectionService.findAll(HelpRequest.class, "teamId")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all?fields=teamId"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(HelpRequest.class, "teamId");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/helprequests/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/helprequests/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().id(1L).teamId("First").build();
+                HelpRequest second = HelpRequest.builder().id(2L).teamId("Second").build();
+
+                when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+                KeysetPage<HelpRequest, Long> expectedPage = KeysetPage.<HelpRequest, Long>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor(1L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                HelpRequest third = HelpRequest.builder().id(3L).teamId("Third").build();
+
+                when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 101));
+                KeysetPage<HelpRequest, Long> expectedPage = KeysetPage.<HelpRequest, Long>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/helprequests/queue, /queue/changes and /queue/stream
+
+        @Test
+        public void logged_out_users_cannot_get_queue() throws Exception {
+                mockMvc.perform(get("/api/helprequests/queue"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_queue() throws Exception {
+                // arrange
+
+                HelpRequest waiting = HelpRequest.builder()
+                                .id(3L)
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Swagger")
+                                .solved(false)
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                                .build();
+
+                HelpRequestQueue queue = HelpRequestQueue.builder().version(4).requests(List.of(waiting)).build();
+                when(helpRequestQueueService.snapshot()).thenReturn(queue);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/queue"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestQueueService, times(1)).snapshot();
+                String expectedJson = mapper.writeValueAsString(queue);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_queue_changes() throws Exception {
+                mockMvc.perform(get("/api/helprequests/queue/changes?since=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_queue_changes() throws Exception {
+                // arrange
+
+                HelpRequestQueueEvent solved = HelpRequestQueueEvent.builder()
+                                .version(5)
+                                .type(HelpRequestQueueEvent.Type.SOLVED)
+                                .id(3L)
+                                .build();
+
+                HelpRequestQueueChanges changes = HelpRequestQueueChanges.builder()
+                                .version(5)
+                                .events(List.of(solved))
+                                .build();
+                when(helpRequestQueueService.changesSince(4L)).thenReturn(changes);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/queue/changes?since=4"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestQueueService, times(1)).changesSince(4L);
+                String expectedJson = mapper.writeValueAsString(changes);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_stream_queue() throws Exception {
+                mockMvc.perform(get("/api/helprequests/queue/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_queue() throws Exception {
+                // arrange
+
+                when(helpRequestQueueService.subscribe()).thenReturn(new SseEmitter());
+
+                // act and assert
+                mockMvc.perform(get("/api/helprequests/queue/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted());
+                verify(helpRequestQueueService, times(1)).subscribe();
+        }
+
         // Tests for POST /api/helprequests/post...
 
         @Test
@@ -142,6 +396,7 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(helpRequestRepository, times(1)).save(helpRequest1);
+                verify(helpRequestQueueService, times(1)).saved(helpRequest1);
                 String expectedJson = mapper.writeValueAsString(helpRequest1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -213,18 +468,7 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_request() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-04-21T14:15");
-
-                HelpRequest helpRequest1 = HelpRequest.builder()
-                        .requesterEmail("pdg@ucsb.edu")
-                        .teamId("s22-6pm-4")
-                        .tableOrBreakoutRoom("13")
-                        .explanation("mergeConflict")
-                        .solved(false)
-                        .requestTime(ldt1)
-                        .build();
-
-                when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(helpRequest1));
+                when(helpRequestRepository.deleteRow(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -233,8 +477,9 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(15L);
-                verify(helpRequestRepository, times(1)).delete(any());
+                verify(helpRequestRepository, times(1)).deleteRow(15L);
+                verify(helpRequestRepository, never()).findById(any());
+                verify(helpRequestQueueService, times(1)).deleted(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -246,7 +491,7 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.deleteRow(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -255,7 +500,7 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(15L);
+                verify(helpRequestRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 not found", json.get("message"));
         }
@@ -303,6 +548,9 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                 // assert
                 verify(helpRequestRepository, times(1)).findById(67L);
                 verify(helpRequestRepository, times(1)).save(helpRequestEd); // should be saved with correct user
+                InOrder committedFirst = inOrder(transactionManager, helpRequestQueueService);
+                committedFirst.verify(transactionManager).commit(any());
+                committedFirst.verify(helpRequestQueueService).saved(helpRequestEd);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -343,4 +591,188 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                 assertEquals("HelpRequest with id 67 not found", json.get("message"));
 
         }
-}
\ No newline at end of file
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_helprequest_at_its_current_version() throws Exception {
+                // arrange
+
+                HelpRequest orig = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(false)
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                                .version(3L)
+                                .build();
+
+                HelpRequest edited = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(true)
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                                .version(3L)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(edited);
+
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequests?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).save(edited);
+                assertEquals(requestBody, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_helprequest_at_a_stale_version() throws Exception {
+                // arrange
+
+                HelpRequest orig = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(false)
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                                .version(4L)
+                                .build();
+
+                HelpRequest edited = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(true)
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+                                .version(3L)
+                                .build();
+
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequests?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for PATCH /api/helprequests?id=...&version=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/helprequests?id=67&version=3")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"solved\": true}")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can patch
+
+                verify(partialUpdateService, never()).patch(any(), eq(67L), eq(3L), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_only_the_given_fields() throws Exception {
+                // arrange
+
+                PatchResult patched = PatchResult.builder().id(67L).version(4L)
+                                .values(Map.of("solved", true, "version", 4L)).build();
+                when(partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("solved", true)))
+                                .thenReturn(patched);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequests?id=67&version=3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"solved\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(HelpRequest.class, 67L, 3L, Map.of("solved", true));
+                verify(helpRequestRepository, never()).save(any());
+                verify(helpRequestRepository, never()).findById(any());
+                verify(helpRequestQueueService, times(1)).patched(patched);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(67, json.get("id"));
+                assertEquals(4, json.get("version"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_helprequest_at_a_stale_version() throws Exception {
+                // arrange
+
+                when(partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("solved", true)))
+                                .thenThrow(new ObjectOptimisticLockingFailureException(HelpRequest.class, 67L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequests?id=67&version=3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"solved\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(helpRequestQueueService, never()).patched(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for DELETE /api/helprequests/bulk?ids=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/helprequests/bulk?ids=15,16,15").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can delete
+
+                verify(helpRequestRepository, never()).deleteRows(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_by_id_in_one_statement() throws Exception {
+                // arrange
+
+                when(helpRequestRepository.deleteRows(Set.of(15L, 16L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequests/bulk?ids=15,16,15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).deleteRows(Set.of(15L, 16L));
+                verify(helpRequestRepository, never()).findById(any());
+                verify(helpRequestQueueService, times(1)).deleted(15L);
+                verify(helpRequestQueueService, times(1)).deleted(16L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 HelpRequest rows deleted", json.get("message"));
+        }
+}
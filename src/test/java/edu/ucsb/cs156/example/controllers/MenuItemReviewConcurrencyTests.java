@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import edu.ucsb.cs156.example.IntegrationTestApplication;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+
+/**
+ * Sends overlapping PUTs for one review and checks that the item's rating
+ * totals still describe exactly the stars that were saved.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:menuitemreviewconcurrency;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop" })
+@AutoConfigureMockMvc
+class MenuItemReviewConcurrencyTests {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemRatingService menuItemRatingService;
+
+  @Test
+  void overlapping_updates_keep_the_rating_totals_consistent() throws Exception {
+    // arrange
+    MvcResult posted = mockMvc.perform(post("/api/menuitemreview/post?itemId=7&reviewerEmail=cgaucho@ucsb.edu"
+            + "&stars=5&comments=first&dateReviewed=2024-01-08T12:00:00")
+            .with(user("admin").roles("ADMIN", "USER"))
+            .with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+    long id = mapper.readValue(posted.getResponse().getContentAsString(), MenuItemReview.class).getId();
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    CyclicBarrier start = new CyclicBarrier(2);
+
+    try {
+      for (int round = 0; round < 20; round++) {
+        // act
+        List<Future<Object>> updates = threads.invokeAll(List.of(edit(id, 1, start), edit(id, 4, start)));
+        for (Future<Object> update : updates) {
+          update.get();
+        }
+
+        // assert
+        int stars = menuItemReviewRepository.findById(id).orElseThrow().getStars();
+        MenuItemRating rating = menuItemRatingService.getRating(7);
+        assertEquals(1, rating.getReviewCount());
+        assertEquals(stars, rating.getStarTotal());
+        assertEquals(stars == 1 ? 1 : 0, rating.getOneStar());
+        assertEquals(stars == 4 ? 1 : 0, rating.getFourStars());
+        assertEquals(0, rating.getTwoStars() + rating.getThreeStars() + rating.getFiveStars());
+      }
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  private Callable<Object> edit(long id, int stars, CyclicBarrier start) throws Exception {
+    String body = mapper.writeValueAsString(MenuItemReview.builder()
+        .itemId(7)
+        .reviewerEmail("cgaucho@ucsb.edu")
+        .stars(stars)
+        .dateReviewed(LocalDateTime.parse("2024-01-08T12:00:00"))
+        .comments("edited to " + stars)
+        .build());
+    return () -> {
+      start.await();
+      return mockMvc.perform(put("/api/menuitemreview?id=" + id)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(body)
+              .with(user("admin").roles("ADMIN", "USER"))
+              .with(csrf()))
+          .andExpect(status().isOk()).andReturn();
+    };
+  }
+}
@@ -1,21 +1,33 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -33,7 +45,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, NdjsonExportService.class })
 public class MenuItemReviewControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -42,6 +54,18 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
+        @MockBean
+        PlatformTransactionManager transactionManager;
+
+        @MockBean
+        EntityManager entityManager;
+
+        @MockBean
+        MenuItemRatingService menuItemRatingService;
+
         // Authorization tests for /api/menuitemreview/admin/all
 
         @Test
@@ -66,6 +90,134 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         // Authorization tests for /api/menuitemreview/post
         // (Perhaps should also have these for put and delete)
 
+        // Tests for GET /api/menuitemreview/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403)); // logged out users can't stream all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_as_ndjson() throws Exception {
+
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().id(1L).comments("First").build();
+                MenuItemReview second = MenuItemReview.builder().id(2L).comments("Second").build();
+
+                when(menuItemReviewRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/menuitemreview/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).streamAll();
+                verify(entityManager, times(1)).detach(first);
+                verify(entityManager, times(1)).detach(second);
+                String expectedBody = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedBody, responseString);
+        }
+
+        // Tests for GET /api/menuitemreview/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/all?fields=stars"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "stars", 5));
+                when(fieldProjectionService.findAll(MenuItemReview.class, "stars")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all?fields=stars"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(MenuItemReview.class, "stars");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/menuitemreview/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().id(1L).comments("First").build();
+                MenuItemReview second = MenuItemReview.builder().id(2L).comments("Second").build();
+
+                when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+                KeysetPage<MenuItemReview, Long> expectedPage = KeysetPage.<MenuItemReview, Long>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor(1L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                MenuItemReview third = MenuItemReview.builder().id(3L).comments("Third").build();
+
+                when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 101));
+                KeysetPage<MenuItemReview, Long> expectedPage = KeysetPage.<MenuItemReview, Long>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         @Test
         public void logged_out_users_cannot_post() throws Exception {
                 mockMvc.perform(post("/api/menuitemreview/post"))
@@ -197,6 +349,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(menuItemReview);
+                verify(menuItemRatingService, times(1)).reviewAdded(7L, 5);
                 String expectedJson = mapper.writeValueAsString(menuItemReview);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -217,7 +370,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .comments("I love the Apple Pie.")
                                 .build();
 
-                when(menuItemReviewRepository.findById(eq(9L))).thenReturn(Optional.of(menuItemReview));
+                when(menuItemReviewRepository.findForUpdate(eq(9L))).thenReturn(Optional.of(menuItemReview));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +379,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(9L);
+                verify(menuItemReviewRepository, times(1)).findForUpdate(9L);
                 verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemRatingService, times(1)).reviewRemoved(7L, 5);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 9 deleted", json.get("message"));
@@ -239,7 +393,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdate(eq(15L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +402,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, times(1)).findForUpdate(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
@@ -279,7 +433,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.findForUpdate(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -291,8 +445,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdate(67L);
                 verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
+                verify(menuItemRatingService, times(1)).reviewChanged(7L, 5, 10L, 1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -314,7 +469,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemEditedReview);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdate(eq(67L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -326,9 +481,115 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdate(67L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/menuitemreview/rating and /api/menuitemreview/toprated
+
+        @Test
+        public void logged_out_users_cannot_get_rating() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/rating?itemId=7"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_rating_of_an_item() throws Exception {
+                // arrange
+
+                MenuItemRating rating = MenuItemRating.builder()
+                                .itemId(7)
+                                .reviewCount(3)
+                                .starTotal(11)
+                                .averageStars(11.0 / 3)
+                                .threeStars(1)
+                                .fourStars(1)
+                                .build();
+
+                when(menuItemRatingService.getRating(7L)).thenReturn(rating);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/rating?itemId=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRatingService, times(1)).getRating(7L);
+                String expectedJson = mapper.writeValueAsString(rating);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_top_rated() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/toprated"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_top_rated_items() throws Exception {
+                // arrange
+
+                MenuItemRating best = MenuItemRating.builder().itemId(7).reviewCount(2).starTotal(10).averageStars(5.0).fiveStars(2).build();
+                MenuItemRating next = MenuItemRating.builder().itemId(3).reviewCount(1).starTotal(4).averageStars(4.0).fourStars(1).build();
+                List<MenuItemRating> expected = List.of(best, next);
+
+                when(menuItemRatingService.topRated(2, 1L)).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/toprated?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRatingService, times(1)).topRated(2, 1L);
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void top_rated_limit_is_clamped() throws Exception {
+                // act
+                mockMvc.perform(get("/api/menuitemreview/toprated?limit=5000&minReviews=3"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(menuItemRatingService, times(1)).topRated(1000, 3L);
+        }
+
+        // Tests for DELETE /api/menuitemreview/bulk?ids=...
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_reviews_and_their_ratings_are_updated() throws Exception {
+                // arrange
+
+                MenuItemReview review = MenuItemReview.builder()
+                                .id(9L)
+                                .itemId(7)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("I love the Apple Pie.")
+                                .build();
+
+                when(menuItemReviewRepository.findForDelete(Set.of(9L, 15L))).thenReturn(List.of(review));
+                when(menuItemReviewRepository.deleteRows(Set.of(9L, 15L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/menuitemreview/bulk?ids=9,15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).deleteRows(Set.of(9L, 15L));
+                verify(menuItemRatingService, times(1)).reviewRemoved(7L, 5);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 MenuItemReview rows deleted", json.get("message"));
+        }
 }
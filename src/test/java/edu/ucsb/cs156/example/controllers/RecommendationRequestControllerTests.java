@@ -1,8 +1,12 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.List;
+import java.util.Set;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.controllers.RecommendationRequestController;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
@@ -10,10 +14,15 @@ import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
+import edu.ucsb.cs156.example.services.PartialUpdateService;
+import edu.ucsb.cs156.example.models.PatchResult;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -30,6 +39,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -43,6 +53,15 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
+        @MockBean
+        PartialUpdateService partialUpdateService;
+
+        @MockBean
+        PlatformTransactionManager transactionManager;
+
         // Tests for GET /api/recommendationrequests/all
         
         @Test
@@ -106,6 +125,97 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/recommendationrequests/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequests/all?fields=professorEmail"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "professorEmail", "phtcon@ucsb.edu"));
+                when(fieldProjectionService.findAll(RecommendationRequest.class, "professorEmail")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/all?fields=professorEmail"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(RecommendationRequest.class, "professorEmail");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/recommendationrequests/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequests/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                RecommendationRequest first = RecommendationRequest.builder().id(1L).explanation("First").build();
+                RecommendationRequest second = RecommendationRequest.builder().id(2L).explanation("Second").build();
+
+                when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(recommendationRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+                KeysetPage<RecommendationRequest, Long> expectedPage = KeysetPage.<RecommendationRequest, Long>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor(1L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                RecommendationRequest third = RecommendationRequest.builder().id(3L).explanation("Third").build();
+
+                when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(recommendationRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 101));
+                KeysetPage<RecommendationRequest, Long> expectedPage = KeysetPage.<RecommendationRequest, Long>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         // Tests for POST /api/recommendationrequests/post...
 
         @Test
@@ -222,20 +332,10 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_request() throws Exception {
                 // arrange
 
-                LocalDateTime dr1 = LocalDateTime.parse("2022-01-03T00:00:00");
-                LocalDateTime dn1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 boolean done1 = true;
 
-                RecommendationRequest request1 = RecommendationRequest.builder()
-                                .requesterEmail("requester1@ucsb.edu")
-                                .professorEmail("professor1@ucsb.edu")
-                                .explanation("explain1")
-                                .dateRequested(dr1)
-                                .dateNeeded(dn1)
-                                .done(done1)
-                                .build();
 
-                when(recommendationRequestRepository.findById(eq(123L))).thenReturn(Optional.of(request1));
+                when(recommendationRequestRepository.deleteRow(123L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -244,8 +344,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(123L);
-                verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestRepository, times(1)).deleteRow(123L);
+                verify(recommendationRequestRepository, never()).findById(any());
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 123 deleted", json.get("message"));
@@ -257,7 +357,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(recommendationRequestRepository.findById(eq(123L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.deleteRow(123L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -266,7 +366,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(123L);
+                verify(recommendationRequestRepository, times(1)).deleteRow(123L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 123 not found", json.get("message"));
         }
@@ -362,4 +462,181 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 assertEquals("RecommendationRequest with id 123 not found", json.get("message"));
 
         }
-}
\ No newline at end of file
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_request_at_its_current_version() throws Exception {
+                // arrange
+
+                RecommendationRequest orig = RecommendationRequest.builder()
+                                .requesterEmail("requester1@ucsb.edu")
+                                .professorEmail("professor1@ucsb.edu")
+                                .explanation("explain1")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(false)
+                                .version(3L)
+                                .build();
+
+                RecommendationRequest edited = RecommendationRequest.builder()
+                                .requesterEmail("requester1@ucsb.edu")
+                                .professorEmail("professor1@ucsb.edu")
+                                .explanation("explain1")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(true)
+                                .version(3L)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(edited);
+
+                when(recommendationRequestRepository.findById(eq(123L))).thenReturn(Optional.of(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationrequests?id=123")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).save(edited);
+                assertEquals(requestBody, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_request_at_a_stale_version() throws Exception {
+                // arrange
+
+                RecommendationRequest orig = RecommendationRequest.builder()
+                                .requesterEmail("requester1@ucsb.edu")
+                                .professorEmail("professor1@ucsb.edu")
+                                .explanation("explain1")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(false)
+                                .version(4L)
+                                .build();
+
+                RecommendationRequest edited = RecommendationRequest.builder()
+                                .requesterEmail("requester1@ucsb.edu")
+                                .professorEmail("professor1@ucsb.edu")
+                                .explanation("explain1")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(true)
+                                .version(3L)
+                                .build();
+
+                when(recommendationRequestRepository.findById(eq(123L))).thenReturn(Optional.of(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationrequests?id=123")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for PATCH /api/recommendationrequests?id=...&version=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/recommendationrequests?id=123&version=3")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"done\": true}")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can patch
+
+                verify(partialUpdateService, never()).patch(any(), eq(123L), eq(3L), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_only_the_given_fields() throws Exception {
+                // arrange
+
+                when(partialUpdateService.patch(RecommendationRequest.class, 123L, 3L, Map.of("done", true)))
+                                .thenReturn(PatchResult.builder().id(123L).version(4L).build());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/recommendationrequests?id=123&version=3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(partialUpdateService, times(1)).patch(RecommendationRequest.class, 123L, 3L, Map.of("done", true));
+                verify(recommendationRequestRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(123, json.get("id"));
+                assertEquals(4, json.get("version"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_request_at_a_stale_version() throws Exception {
+                // arrange
+
+                when(partialUpdateService.patch(RecommendationRequest.class, 123L, 3L, Map.of("done", true)))
+                                .thenThrow(new ObjectOptimisticLockingFailureException(RecommendationRequest.class, 123L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/recommendationrequests?id=123&version=3")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for DELETE /api/recommendationrequests/bulk?ids=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/recommendationrequests/bulk?ids=15,16,15").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can delete
+
+                verify(recommendationRequestRepository, never()).deleteRows(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_by_id_in_one_statement() throws Exception {
+                // arrange
+
+                when(recommendationRequestRepository.deleteRows(Set.of(15L, 16L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/recommendationrequests/bulk?ids=15,16,15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).deleteRows(Set.of(15L, 16L));
+                verify(recommendationRequestRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 RecommendationRequest rows deleted", json.get("message"));
+        }
+}
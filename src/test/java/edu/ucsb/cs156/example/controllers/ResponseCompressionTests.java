@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import edu.ucsb.cs156.example.IntegrationTestApplication;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+
+/**
+ * Runs the application on the embedded Tomcat, where server.compression
+ * applies (MockMvc bypasses it), to check that conditional GET listings are
+ * still gzipped.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+    classes = { IntegrationTestApplication.class, ResponseCompressionTests.UserAuthentication.class },
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:compression;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop" })
+class ResponseCompressionTests {
+
+  /**
+   * A filter that logs every request in as a user after Spring Security has
+   * run.  Not annotated with @Configuration so that no component scan picks
+   * it up.
+   */
+  static class UserAuthentication {
+
+    @Bean
+    FilterRegistrationBean<Filter> userAuthenticationFilter() {
+      Authentication user = new UsernamePasswordAuthenticationToken(
+          "cgaucho", "N/A", AuthorityUtils.createAuthorityList("ROLE_USER"));
+      FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(
+          (ServletRequest request, ServletResponse response, FilterChain chain) -> {
+            SecurityContextHolder.getContext().setAuthentication(user);
+            try {
+              chain.doFilter(request, response);
+            } finally {
+              SecurityContextHolder.clearContext();
+            }
+          });
+      registration.setOrder(0);
+      return registration;
+    }
+  }
+
+  @LocalServerPort
+  int port;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Test
+  void large_conditional_get_listing_is_gzipped() throws Exception {
+    // arrange
+    articlesRepository.saveAll(IntStream.rangeClosed(1, 50)
+        .mapToObj(i -> Articles.builder()
+            .title("Article " + i)
+            .url("https://example.org/" + i)
+            .explanation("explanation of article " + i)
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2024-01-01T00:00:00").plusMinutes(i))
+            .build())
+        .toList());
+
+    // act
+    HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+        HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/articles/all"))
+            .header("Accept", "application/json")
+            .header("Accept-Encoding", "gzip")
+            .GET()
+            .build(),
+        HttpResponse.BodyHandlers.ofByteArray());
+
+    // assert
+    assertEquals(200, response.statusCode());
+    assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+    assertTrue(response.headers().firstValue("ETag").orElseThrow().startsWith("W/\""));
+  }
+}
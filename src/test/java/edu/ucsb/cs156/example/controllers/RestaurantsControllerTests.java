@@ -1,18 +1,25 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.NameSuggestion;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.TypeaheadService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -26,6 +33,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,12 +42,18 @@ import static org.mockito.Mockito.when;
 @Import(TestConfig.class)
 public class RestaurantsControllerTests extends ControllerTestCase {
 
+        @MockBean
+        TypeaheadService typeaheadService;
+
         @MockBean
         RestaurantRepository restaurantRepository;
 
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
         // Authorization tests for /api/phones/admin/all
 
         @Test
@@ -64,6 +78,97 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         // Authorization tests for /api/phones/post
         // (Perhaps should also have these for put and delete)
 
+        // Tests for GET /api/restaurants/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/restaurants/all?fields=name"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "name", "Chipotle"));
+                when(fieldProjectionService.findAll(Restaurant.class, "name")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all?fields=name"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(Restaurant.class, "name");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/restaurants/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/restaurants/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                Restaurant first = Restaurant.builder().id(1L).name("First").build();
+                Restaurant second = Restaurant.builder().id(2L).name("Second").build();
+
+                when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+                KeysetPage<Restaurant, Long> expectedPage = KeysetPage.<Restaurant, Long>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor(1L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                Restaurant third = Restaurant.builder().id(3L).name("Third").build();
+
+                when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 101));
+                KeysetPage<Restaurant, Long> expectedPage = KeysetPage.<Restaurant, Long>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         @Test
         public void logged_out_users_cannot_post() throws Exception {
                 mockMvc.perform(post("/api/restaurants/post"))
@@ -157,6 +262,46 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/restaurants/typeahead
+
+        @Test
+        public void logged_out_users_cannot_get_restaurant_typeahead() throws Exception {
+                mockMvc.perform(get("/api/restaurants/typeahead?prefix=chi"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_restaurant_typeahead() throws Exception {
+                // arrange
+
+                List<NameSuggestion> suggestions = List.of(
+                                NameSuggestion.builder().id(3L).name("Chipotle").build(),
+                                NameSuggestion.builder().id(8L).name("Chick-fil-A").build());
+
+                when(typeaheadService.suggestRestaurants("chi", 10)).thenReturn(suggestions);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/typeahead?prefix=chi"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(typeaheadService, times(1)).suggestRestaurants("chi", 10);
+                assertEquals(mapper.writeValueAsString(suggestions), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void restaurant_typeahead_clamps_limit() throws Exception {
+                mockMvc.perform(get("/api/restaurants/typeahead?prefix=chi&limit=0"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/restaurants/typeahead?prefix=chi&limit=5000"))
+                                .andExpect(status().isOk());
+
+                verify(typeaheadService, times(1)).suggestRestaurants("chi", 1);
+                verify(typeaheadService, times(1)).suggestRestaurants("chi", ApiController.MAX_PAGE_LIMIT);
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void an_admin_user_can_post_a_new_restaurant() throws Exception {
@@ -177,6 +322,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(restaurantRepository, times(1)).save(restaurant1);
+                verify(typeaheadService, times(1)).restaurantSaved(restaurant1);
                 String expectedJson = mapper.writeValueAsString(restaurant1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -187,12 +333,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_restaurant() throws Exception {
                 // arrange
 
-                Restaurant restaurant = Restaurant.builder()
-                                .name("Taco Bell")
-                                .description("Mexican")
-                                .build();
-
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant));
+                when(restaurantRepository.deleteRow(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -201,8 +342,9 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
-                verify(restaurantRepository, times(1)).delete(any());
+                verify(restaurantRepository, times(1)).deleteRow(15L);
+                verify(restaurantRepository, never()).findById(any());
+                verify(typeaheadService, times(1)).restaurantDeleted(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -214,7 +356,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(restaurantRepository.deleteRow(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -223,7 +365,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
+                verify(restaurantRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 not found", json.get("message"));
         }
@@ -259,6 +401,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 // assert
                 verify(restaurantRepository, times(1)).findById(67L);
                 verify(restaurantRepository, times(1)).save(restaurantEdited); // should be saved with correct user
+                verify(typeaheadService, times(1)).restaurantSaved(restaurantEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -294,4 +437,37 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for DELETE /api/restaurants/bulk?ids=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/restaurants/bulk?ids=15,16,15").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can delete
+
+                verify(restaurantRepository, never()).deleteRows(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_by_id_in_one_statement() throws Exception {
+                // arrange
+
+                when(restaurantRepository.deleteRows(Set.of(15L, 16L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/restaurants/bulk?ids=15,16,15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).deleteRows(Set.of(15L, 16L));
+                verify(restaurantRepository, never()).findById(any());
+                verify(typeaheadService, times(1)).restaurantDeleted(15L);
+                verify(typeaheadService, times(1)).restaurantDeleted(16L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 Restaurant rows deleted", json.get("message"));
+        }
 }
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ucsb.cs156.example.IntegrationTestApplication;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+/**
+ * Reads one quarter twice through GET /api/ucsbdates/quarter and checks with
+ * Hibernate's statistics that the second read is answered from the query
+ * cache.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:ucsbdatesquerycache;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop" })
+@AutoConfigureMockMvc
+class UCSBDatesQueryCacheTests {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Test
+  void second_read_of_a_quarter_hits_the_query_cache() throws Exception {
+    // arrange
+    ucsbDateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ("20241").name("last day").localDateTime(LocalDateTime.parse("2024-03-22T00:00:00")).build());
+    ucsbDateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ("20241").name("first day").localDateTime(LocalDateTime.parse("2024-01-08T00:00:00")).build());
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    readQuarter();
+    long hits = statistics.getQueryCacheHitCount();
+
+    // act
+    readQuarter();
+
+    // assert
+    assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+  }
+
+  private void readQuarter() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20241").with(user("cgaucho").roles("USER")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].name").value("first day"))
+        .andExpect(jsonPath("$[1].name").value("last day"));
+  }
+}
@@ -1,20 +1,30 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsCache;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -26,20 +36,33 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
 @Import(TestConfig.class)
+@TestPropertySource(properties = "app.referenceData.cache.ttlSeconds=0")
 public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
         @MockBean
         UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+        @MockBean
+        DiningCommonsLocator diningCommonsLocator;
+
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
+        // A TTL of zero keeps the real cache empty, so each request reaches the
+        // mocked repository; caching itself is covered by ReferenceDataCacheTests.
+        @SpyBean
+        UCSBDiningCommonsCache ucsbDiningCommonsCache;
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -61,9 +84,198 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().is(403)); // logged out users can't get by id
         }
 
+        // Tests for GET /api/ucsbdiningcommons/nearest and /within
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=34.41&longitude=-119.85"))
+                                .andExpect(status().is(403)); // logged out users can't search
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_nearest_commons() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons carrillo = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+                List<DiningCommonsDistance> nearest = List.of(DiningCommonsDistance.builder()
+                                .commons(carrillo)
+                                .distanceMeters(12.5)
+                                .build());
+
+                when(diningCommonsLocator.nearest(34.41, -119.85, 2)).thenReturn(nearest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=34.41&longitude=-119.85&k=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(diningCommonsLocator, times(1)).nearest(34.41, -119.85, 2);
+                assertEquals(mapper.writeValueAsString(nearest), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_clamps_k() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=0&longitude=0&k=5000"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=0&longitude=0&k=0"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=0&longitude=0"))
+                                .andExpect(status().isOk());
+
+                verify(diningCommonsLocator, times(1)).nearest(0, 0, ApiController.MAX_PAGE_LIMIT);
+                verify(diningCommonsLocator, times(1)).nearest(0, 0, 1);
+                verify(diningCommonsLocator, times(1)).nearest(0, 0, 5);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_rejects_coordinates_off_the_globe() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=91&longitude=0"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=-90.5&longitude=0"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=0&longitude=180.5"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?latitude=NaN&longitude=0"))
+                                .andExpect(status().isBadRequest());
+
+                verify(diningCommonsLocator, never()).nearest(any(Double.class), any(Double.class), any(Integer.class));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_commons_within_radius() throws Exception {
+
+                // arrange
+
+                when(diningCommonsLocator.within(34.41, -119.85, 500.0)).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/within?latitude=34.41&longitude=-119.85&radiusMeters=500"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(diningCommonsLocator, times(1)).within(34.41, -119.85, 500.0);
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void within_rejects_bad_arguments() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/within?latitude=34.41&longitude=-119.85&radiusMeters=-1"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdiningcommons/within?latitude=34.41&longitude=-119.85&radiusMeters=NaN"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdiningcommons/within?latitude=34.41&longitude=-200&radiusMeters=10"))
+                                .andExpect(status().isBadRequest());
+
+                verify(diningCommonsLocator, never()).within(any(Double.class), any(Double.class), any(Double.class));
+        }
+
         // Authorization tests for /api/ucsbdiningcommons/post
         // (Perhaps should also have these for put and delete)
 
+        // Tests for GET /api/ucsbdiningcommons/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/all?fields=name"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("code", "ortega", "name", "Ortega"));
+                when(fieldProjectionService.findAll(UCSBDiningCommons.class, "name")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?fields=name"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(UCSBDiningCommons.class, "name");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons first = UCSBDiningCommons.builder().code("carrillo").name("First").build();
+                UCSBDiningCommons second = UCSBDiningCommons.builder().code("dlg").name("Second").build();
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq(""), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCodeAsc("", PageRequest.of(0, 2));
+                KeysetPage<UCSBDiningCommons, String> expectedPage = KeysetPage.<UCSBDiningCommons, String>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor("carrillo")
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons third = UCSBDiningCommons.builder().code("ortega").name("Third").build();
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq("dlg"), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?after=dlg"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCodeAsc("dlg", PageRequest.of(0, 101));
+                KeysetPage<UCSBDiningCommons, String> expectedPage = KeysetPage.<UCSBDiningCommons, String>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         @Test
         public void logged_out_users_cannot_post() throws Exception {
                 mockMvc.perform(post("/api/ucsbdiningcommons/post"))
@@ -197,6 +409,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(ucsbDiningCommonsCache, times(1)).saved("ortega");
+                verify(diningCommonsLocator, times(1)).rebuild();
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -207,17 +421,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                UCSBDiningCommons portola = UCSBDiningCommons.builder()
-                                .name("Portola")
-                                .code("portola")
-                                .hasSackMeal(true)
-                                .hasTakeOutMeal(true)
-                                .hasDiningCam(true)
-                                .latitude(34.417723)
-                                .longitude(-119.867427)
-                                .build();
-
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRow("portola")).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +430,10 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRow("portola");
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+                verify(ucsbDiningCommonsCache, times(1)).deleted("portola");
+                verify(diningCommonsLocator, times(1)).rebuild();
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -239,7 +445,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRow("munger-hall")).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +454,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRow("munger-hall");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -294,6 +500,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
                 verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(ucsbDiningCommonsCache, times(1)).saved("carrillo");
+                verify(diningCommonsLocator, times(1)).rebuild();
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -332,4 +540,38 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        // Tests for DELETE /api/ucsbdiningcommons/bulk?codes=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdiningcommons/bulk?codes=portola,munger-hall,portola").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can delete
+
+                verify(ucsbDiningCommonsRepository, never()).deleteRows(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_by_id_in_one_statement() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.deleteRows(Set.of("portola", "munger-hall"))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommons/bulk?codes=portola,munger-hall,portola")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRows(Set.of("portola", "munger-hall"));
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+                verify(ucsbDiningCommonsCache, times(1)).deleted("portola");
+                verify(ucsbDiningCommonsCache, times(1)).deleted("munger-hall");
+                verify(diningCommonsLocator, times(1)).rebuild();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 UCSBDiningCommons rows deleted", json.get("message"));
+        }
 }
@@ -1,21 +1,33 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TypeaheadService;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.NameSuggestion;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -26,20 +38,33 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBDiningCommonsMenuItemController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, NdjsonExportService.class })
 public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase {
 
+        @MockBean
+        TypeaheadService typeaheadService;
+
         @MockBean
         UCSBDiningCommonsMenuItemRepository ucsbDiningMenuItemRepository;
 
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
+        @MockBean
+        PlatformTransactionManager transactionManager;
+
+        @MockBean
+        EntityManager entityManager;
+
         // Tests for GET /api/ucsbdiningcommonsmenuitem/all
         
         @Test
@@ -91,6 +116,134 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/all with Accept: application/x-ndjson
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403)); // logged out users can't stream all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_as_ndjson() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().id(1L).name("First").build();
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder().id(2L).name("Second").build();
+
+                when(ucsbDiningMenuItemRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andReturn();
+
+                // assert
+
+                verify(ucsbDiningMenuItemRepository, times(1)).streamAll();
+                verify(entityManager, times(1)).detach(first);
+                verify(entityManager, times(1)).detach(second);
+                String expectedBody = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedBody, responseString);
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all?fields=name"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "name", "Pizza"));
+                when(fieldProjectionService.findAll(UCSBDiningCommonsMenuItem.class, "name")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all?fields=name"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(UCSBDiningCommonsMenuItem.class, "name");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().id(1L).name("First").build();
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder().id(2L).name("Second").build();
+
+                when(ucsbDiningMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningMenuItemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2));
+                KeysetPage<UCSBDiningCommonsMenuItem, Long> expectedPage = KeysetPage.<UCSBDiningCommonsMenuItem, Long>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor(1L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommonsMenuItem third = UCSBDiningCommonsMenuItem.builder().id(3L).name("Third").build();
+
+                when(ucsbDiningMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningMenuItemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 101));
+                KeysetPage<UCSBDiningCommonsMenuItem, Long> expectedPage = KeysetPage.<UCSBDiningCommonsMenuItem, Long>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         // Tests for POST /api/ucsbdiningcommonsmenuitem/post...
 
         @Test
@@ -127,11 +280,186 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
                 // assert
                 verify(ucsbDiningMenuItemRepository, times(1)).save(ucsbMenuItem1);
+                verify(typeaheadService, times(1)).menuItemSaved(ucsbMenuItem1);
                 String expectedJson = mapper.writeValueAsString(ucsbMenuItem1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for POST /api/ucsbdiningcommonsmenuitem/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_bulk() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_a_json_array_of_menu_items() throws Exception {
+                // arrange
+
+                UCSBDiningCommonsMenuItem pasta = UCSBDiningCommonsMenuItem.builder()
+                                .name("Baked Pesto Pasta with Chicken")
+                                .diningCommonsCode("ortega")
+                                .station("Entree Specials")
+                                .build();
+
+                UCSBDiningCommonsMenuItem tofu = UCSBDiningCommonsMenuItem.builder()
+                                .name("Tofu Banh Mi Sandwich (v)")
+                                .diningCommonsCode("ortega")
+                                .station("Entree Specials")
+                                .build();
+
+                UCSBDiningCommonsMenuItem pastaWithId = UCSBDiningCommonsMenuItem.builder()
+                                .id(17L)
+                                .name(pasta.getName())
+                                .diningCommonsCode(pasta.getDiningCommonsCode())
+                                .station(pasta.getStation())
+                                .build();
+
+                List<UCSBDiningCommonsMenuItem> expectedItems = List.of(pasta, tofu);
+                when(ucsbDiningMenuItemRepository.saveAll(eq(expectedItems))).thenReturn(expectedItems);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(mapper.writeValueAsString(List.of(pastaWithId, tofu)))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningMenuItemRepository, times(1)).saveAll(expectedItems); // ids in the request are ignored
+                verify(typeaheadService, times(1)).menuItemSaved(pasta);
+                verify(typeaheadService, times(1)).menuItemSaved(tofu);
+                String expectedJson = mapper.writeValueAsString(expectedItems);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_csv_menu_items() throws Exception {
+                // arrange
+
+                UCSBDiningCommonsMenuItem pasta = UCSBDiningCommonsMenuItem.builder()
+                                .name("Baked Pesto Pasta with Chicken")
+                                .diningCommonsCode("ortega")
+                                .station("Entree Specials")
+                                .build();
+
+                UCSBDiningCommonsMenuItem salad = UCSBDiningCommonsMenuItem.builder()
+                                .name("Chicken Caesar Salad")
+                                .diningCommonsCode("carrillo")
+                                .station("Salads")
+                                .build();
+
+                List<UCSBDiningCommonsMenuItem> expectedItems = List.of(pasta, salad);
+                when(ucsbDiningMenuItemRepository.saveAll(eq(expectedItems))).thenReturn(expectedItems);
+
+                String csv = """
+                                name,diningCommonsCode,station
+                                Baked Pesto Pasta with Chicken,ortega,Entree Specials
+                                Chicken Caesar Salad,carrillo,Salads
+                                """;
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                                                .contentType("text/csv")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningMenuItemRepository, times(1)).saveAll(expectedItems);
+                verify(typeaheadService, times(1)).menuItemSaved(salad);
+                String expectedJson = mapper.writeValueAsString(expectedItems);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void malformed_csv_is_rejected_with_400() throws Exception {
+                // act
+                mockMvc.perform(
+                                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                                                .contentType("text/csv")
+                                                .content("name,color\nTofu,green\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest());
+
+                // assert
+                verify(ucsbDiningMenuItemRepository, times(0)).saveAll(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_too_many_menu_items_is_rejected_with_400() throws Exception {
+                // arrange
+                String csv = "name,diningCommonsCode,station\n"
+                                + "Tofu,ortega,Entree Specials\n".repeat(UCSBDiningCommonsMenuItemController.MAX_BULK_ITEMS + 1);
+
+                // act
+                mockMvc.perform(
+                                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                                                .contentType("text/csv")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest());
+
+                // assert
+                verify(ucsbDiningMenuItemRepository, times(0)).saveAll(any());
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/typeahead
+
+        @Test
+        public void logged_out_users_cannot_get_menu_item_typeahead() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/typeahead?prefix=chi"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_menu_item_typeahead() throws Exception {
+                // arrange
+
+                List<NameSuggestion> suggestions = List.of(
+                                NameSuggestion.builder().id(4L).name("Chicken Caesar Salad").build());
+
+                when(typeaheadService.suggestMenuItems("chicken c", 3)).thenReturn(suggestions);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/typeahead?prefix=chicken c&limit=3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(typeaheadService, times(1)).suggestMenuItems("chicken c", 3);
+                assertEquals(mapper.writeValueAsString(suggestions), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void menu_item_typeahead_clamps_limit() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/typeahead?prefix=chi&limit=-3"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/typeahead?prefix=chi&limit=5000"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/typeahead?prefix=chi"))
+                                .andExpect(status().isOk());
+
+                verify(typeaheadService, times(1)).suggestMenuItems("chi", 1);
+                verify(typeaheadService, times(1)).suggestMenuItems("chi", ApiController.MAX_PAGE_LIMIT);
+                verify(typeaheadService, times(1)).suggestMenuItems("chi", 10);
+        }
+
         // Tests for GET /api/ucsbdiningcommonsmenuitem?id=...
 
         @Test
@@ -194,13 +522,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         public void admin_can_delete_a_menu_item() throws Exception {
                 // arrange
 
-                UCSBDiningCommonsMenuItem ucsbMenuItem1 = UCSBDiningCommonsMenuItem.builder()
-                                .name("Baked Pesto Pasta with Chicken")
-                                .diningCommonsCode("ortega")
-                                .station("Entree Specials")
-                                .build();
-
-                when(ucsbDiningMenuItemRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbMenuItem1));
+                when(ucsbDiningMenuItemRepository.deleteRow(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -209,8 +531,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningMenuItemRepository, times(1)).findById(15L);
-                verify(ucsbDiningMenuItemRepository, times(1)).delete(any());
+                verify(ucsbDiningMenuItemRepository, times(1)).deleteRow(15L);
+                verify(ucsbDiningMenuItemRepository, never()).findById(any());
+                verify(typeaheadService, times(1)).menuItemDeleted(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -222,7 +545,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningMenuItemRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDiningMenuItemRepository.deleteRow(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -231,7 +554,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningMenuItemRepository, times(1)).findById(15L);
+                verify(ucsbDiningMenuItemRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
         }
@@ -271,6 +594,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 // assert
                 verify(ucsbDiningMenuItemRepository, times(1)).findById(67L);
                 verify(ucsbDiningMenuItemRepository, times(1)).save(ucsbMenuItemEdited); // should be saved with correct user
+                verify(typeaheadService, times(1)).menuItemSaved(ucsbMenuItemEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -306,4 +630,37 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for DELETE /api/ucsbdiningcommonsmenuitem/bulk?ids=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdiningcommonsmenuitem/bulk?ids=15,16,15").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can delete
+
+                verify(ucsbDiningMenuItemRepository, never()).deleteRows(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_by_id_in_one_statement() throws Exception {
+                // arrange
+
+                when(ucsbDiningMenuItemRepository.deleteRows(Set.of(15L, 16L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommonsmenuitem/bulk?ids=15,16,15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningMenuItemRepository, times(1)).deleteRows(Set.of(15L, 16L));
+                verify(ucsbDiningMenuItemRepository, never()).findById(any());
+                verify(typeaheadService, times(1)).menuItemDeleted(15L);
+                verify(typeaheadService, times(1)).menuItemDeleted(16L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 UCSBDiningCommonsMenuItem rows deleted", json.get("message"));
+        }
 }
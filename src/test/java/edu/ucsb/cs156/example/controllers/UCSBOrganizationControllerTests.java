@@ -1,10 +1,15 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.List;
+import java.util.Set;
+import edu.ucsb.cs156.example.services.FieldProjectionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.UCSBOrganizationCache;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -12,9 +17,12 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -26,12 +34,14 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
 @Import(TestConfig.class)
+@TestPropertySource(properties = "app.referenceData.cache.ttlSeconds=0")
 public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -40,6 +50,14 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        FieldProjectionService fieldProjectionService;
+
+        // A TTL of zero keeps the real cache empty, so each request reaches the
+        // mocked repository; caching itself is covered by ReferenceDataCacheTests.
+        @SpyBean
+        UCSBOrganizationCache ucsbOrganizationCache;
+
         // Tests for GET /api/UCSBOrganization/all
 
         @Test
@@ -112,6 +130,97 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/UCSBOrganization/all?fields=
+
+        @Test
+        public void logged_out_users_cannot_get_all_fields() throws Exception {
+                mockMvc.perform(get("/api/UCSBOrganization/all?fields=orgTranslationShort"))
+                                .andExpect(status().is(403)); // logged out users can't get all
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_with_only_the_requested_fields() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> rows = List.of(Map.of("orgCode", "ZPR", "orgTranslationShort", "ZETA PHI RHO"));
+                when(fieldProjectionService.findAll(UCSBOrganization.class, "orgTranslationShort")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/UCSBOrganization/all?fields=orgTranslationShort"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(fieldProjectionService, times(1)).findAll(UCSBOrganization.class, "orgTranslationShort");
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/UCSBOrganization/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/UCSBOrganization/page"))
+                                .andExpect(status().is(403)); // logged out users can't get a page
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_with_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBOrganization first = UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("First").build();
+                UCSBOrganization second = UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("Second").build();
+
+                when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(PageRequest.of(0, 2))))
+                                .thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/UCSBOrganization/page?limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThanOrderByOrgCodeAsc("", PageRequest.of(0, 2));
+                KeysetPage<UCSBOrganization, String> expectedPage = KeysetPage.<UCSBOrganization, String>builder()
+                                .content(Arrays.asList(first))
+                                .nextCursor("KRC")
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBOrganization third = UCSBOrganization.builder().orgCode("SKY").orgTranslationShort("Third").build();
+
+                when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("OSLI"), eq(PageRequest.of(0, 101))))
+                                .thenReturn(Arrays.asList(third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/UCSBOrganization/page?after=OSLI"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThanOrderByOrgCodeAsc("OSLI", PageRequest.of(0, 101));
+                KeysetPage<UCSBOrganization, String> expectedPage = KeysetPage.<UCSBOrganization, String>builder()
+                                .content(Arrays.asList(third))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         // Tests for POST /api/UCSBOrganization...
 
         @Test
@@ -149,6 +258,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbOrganizationRepository, times(1)).save(osli);
+                verify(ucsbOrganizationCache, times(1)).saved("OSLI");
                 String expectedJson = mapper.writeValueAsString(osli);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -197,14 +307,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         public void admin_can_delete_an_organization() throws Exception {
                 // arrange
 
-                UCSBOrganization krc = UCSBOrganization.builder()
-                                .orgCode("KRC")
-                                .orgTranslationShort("KOREAN RADIO CL")
-                                .orgTranslation("KOREAN RADIO CLUB")
-                                .inactive(false)
-                                .build();
-
-                when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(krc));
+                when(ucsbOrganizationRepository.deleteRow("KRC")).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -213,8 +316,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("KRC");
-                verify(ucsbOrganizationRepository, times(1)).delete(any());
+                verify(ucsbOrganizationRepository, times(1)).deleteRow("KRC");
+                verify(ucsbOrganizationRepository, never()).findById(any());
+                verify(ucsbOrganizationCache, times(1)).deleted("KRC");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id KRC deleted", json.get("message"));
@@ -226,7 +330,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbOrganizationRepository.findById(eq("MHAC"))).thenReturn(Optional.empty());
+                when(ucsbOrganizationRepository.deleteRow("MHAC")).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -235,7 +339,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("MHAC");
+                verify(ucsbOrganizationRepository, times(1)).deleteRow("MHAC");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id MHAC not found", json.get("message"));
         }
@@ -277,6 +381,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbOrganizationRepository, times(1)).findById("ZPR");
                 verify(ucsbOrganizationRepository, times(1)).save(zprEdited); // should be saved with updated info
+                verify(ucsbOrganizationCache, times(1)).saved("ZPR");
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -313,4 +418,37 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 assertEquals("UCSBOrganization with id MHAC not found", json.get("message"));
 
         }
+
+        // Tests for DELETE /api/UCSBOrganization/bulk?orgCodes=...
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/UCSBOrganization/bulk?orgCodes=KRC,MHAC,KRC").with(csrf()))
+                                .andExpect(status().is(403)); // only admins can delete
+
+                verify(ucsbOrganizationRepository, never()).deleteRows(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_by_id_in_one_statement() throws Exception {
+                // arrange
+
+                when(ucsbOrganizationRepository.deleteRows(Set.of("KRC", "MHAC"))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/UCSBOrganization/bulk?orgCodes=KRC,MHAC,KRC")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).deleteRows(Set.of("KRC", "MHAC"));
+                verify(ucsbOrganizationRepository, never()).findById(any());
+                verify(ucsbOrganizationCache, times(1)).deleted("KRC");
+                verify(ucsbOrganizationCache, times(1)).deleted("MHAC");
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("1 of 2 UCSBOrganization rows deleted", json.get("message"));
+        }
 }
@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import edu.ucsb.cs156.example.IntegrationTestApplication;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminStatusService;
+
+/**
+ * Grants admin rights through the API while the user has a session open, and
+ * checks that neither the session's cached current user nor the cached admin
+ * flag keeps the old value.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:useradmin;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop" })
+@AutoConfigureMockMvc
+class UserAdminIntegrationTests {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Autowired
+  AdminStatusService adminStatusService;
+
+  @Test
+  void granting_admin_is_seen_by_an_open_session() throws Exception {
+    // arrange
+    User ta = userRepository.save(User.builder().email("ta@ucsb.edu").googleSub("sub-ta").build());
+    OAuth2User principal = new DefaultOAuth2User(AuthorityUtils.createAuthorityList("ROLE_USER"),
+        Map.of("sub", "sub-ta", "email", "ta@ucsb.edu"), "sub");
+    Authentication session = new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google");
+    assertFalse(currentUserIsAdmin(session));
+    assertFalse(adminStatusService.isAdmin("ta@ucsb.edu"));
+
+    // act
+    mockMvc.perform(put("/api/admin/users/admin?id=" + ta.getId() + "&admin=true")
+            .with(user("admin").roles("ADMIN", "USER"))
+            .with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertTrue(currentUserIsAdmin(session));
+    assertTrue(adminStatusService.isAdmin("ta@ucsb.edu"));
+  }
+
+  private boolean currentUserIsAdmin(Authentication session) throws Exception {
+    MvcResult response = mockMvc.perform(get("/api/currentUser").with(authentication(session)))
+        .andExpect(status().isOk()).andReturn();
+    return mapper.readTree(response.getResponse().getContentAsString()).at("/user/admin").asBoolean();
+  }
+}
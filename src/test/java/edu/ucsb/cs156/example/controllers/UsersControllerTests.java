@@ -2,7 +2,9 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserAdminService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
@@ -13,14 +15,17 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -29,6 +34,9 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  UserAdminService userAdminService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -50,7 +58,7 @@ public class UsersControllerTests extends ControllerTestCase {
 
     User u1 = User.builder().id(1L).build();
     User u2 = User.builder().id(2L).build();
-    User u = currentUserService.getCurrentUser().getUser();
+    User u = currentUserService.getUser();
 
     ArrayList<User> expectedUsers = new ArrayList<>();
     expectedUsers.addAll(Arrays.asList(u1, u2, u));
@@ -70,4 +78,43 @@ public class UsersControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
 
   }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void set_admin__user_logged_in() throws Exception {
+    mockMvc.perform(put("/api/admin/users/admin?id=7&admin=true").with(csrf()))
+        .andExpect(status().is(403));
+    verify(userAdminService, never()).setAdmin(7L, true);
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void set_admin__admin_logged_in() throws Exception {
+    // arrange
+    User promoted = User.builder().id(7L).email("ta@ucsb.edu").admin(true).build();
+    when(userAdminService.setAdmin(7L, true)).thenReturn(promoted);
+
+    // act
+    MvcResult response = mockMvc.perform(put("/api/admin/users/admin?id=7&admin=true").with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(userAdminService, times(1)).setAdmin(7L, true);
+    assertEquals(mapper.writeValueAsString(promoted), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void set_admin__user_does_not_exist() throws Exception {
+    // arrange
+    when(userAdminService.setAdmin(7L, false)).thenThrow(new EntityNotFoundException(User.class, 7L));
+
+    // act
+    MvcResult response = mockMvc.perform(put("/api/admin/users/admin?id=7&admin=false").with(csrf()))
+        .andExpect(status().isNotFound()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("User with id 7 not found", json.get("message"));
+  }
 }
@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.interceptors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.method.HandlerMethod;
+
+class ConditionalGetInterceptorTests {
+
+  @VersionedTable("widgets")
+  static class WidgetsController {
+    @ConditionalGet
+    public String all() {
+      return "[]";
+    }
+
+    public String page() {
+      return "[]";
+    }
+
+    public String post() {
+      return "{}";
+    }
+  }
+
+  static class PlainController {
+    @ConditionalGet
+    public String all() {
+      return "[]";
+    }
+  }
+
+  private final ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor();
+
+  private static HandlerMethod handler(Object controller, String method) throws NoSuchMethodException {
+    return new HandlerMethod(controller, method);
+  }
+
+  private static MockHttpServletRequest request(String method, String ifNoneMatch) {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/widgets/all");
+    request.setUserPrincipal(new TestingAuthenticationToken("cgaucho", null, "ROLE_USER"));
+    if (ifNoneMatch != null) {
+      request.addHeader("If-None-Match", ifNoneMatch);
+    }
+    return request;
+  }
+
+  /** Does what Spring MVC does with the handler's return value: the advice runs if it supports the handler. */
+  private void writeResponse(MockHttpServletRequest request, MockHttpServletResponse response, HandlerMethod handler) {
+    MethodParameter returnType = handler.getReturnType();
+    if (interceptor.supports(returnType, MappingJackson2HttpMessageConverter.class)) {
+      Object body = interceptor.beforeBodyWrite("{}", returnType, MediaType.APPLICATION_JSON,
+          MappingJackson2HttpMessageConverter.class, new ServletServerHttpRequest(request),
+          new ServletServerHttpResponse(response));
+      assertEquals("{}", body);
+    }
+  }
+
+  @Test
+  void test_first_read_gets_etag() throws Exception {
+    // arrange
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // act
+    boolean proceed = interceptor.preHandle(request("GET", null), response, handler(new WidgetsController(), "all"));
+
+    // assert
+    assertTrue(proceed);
+    assertTrue(interceptor.etag("widgets").startsWith("W/\""));
+    assertEquals(interceptor.etag("widgets"), response.getHeader("ETag"));
+    assertEquals("private, no-cache", response.getHeader("Cache-Control"));
+  }
+
+  @Test
+  void test_matching_if_none_match_short_circuits_with_304() throws Exception {
+    for (String method : new String[] { "GET", "HEAD" }) {
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      boolean proceed = interceptor.preHandle(request(method, interceptor.etag("widgets")), response,
+          handler(new WidgetsController(), "all"));
+      assertFalse(proceed);
+      assertEquals(304, response.getStatus());
+    }
+  }
+
+  @Test
+  void test_successful_write_bumps_version_and_changes_etag() throws Exception {
+    // arrange
+    String before = interceptor.etag("widgets");
+    HandlerMethod post = handler(new WidgetsController(), "post");
+    MockHttpServletResponse ok = new MockHttpServletResponse();
+
+    // act
+    assertTrue(interceptor.preHandle(request("POST", before), ok, post));
+    writeResponse(request("POST", null), ok, post);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    boolean proceed = interceptor.preHandle(request("GET", before), response, handler(new WidgetsController(), "all"));
+
+    // assert
+    assertEquals(1, interceptor.version("widgets"));
+    assertNotEquals(before, interceptor.etag("widgets"));
+    assertTrue(proceed);
+    assertEquals(200, response.getStatus());
+  }
+
+  @Test
+  void test_failed_writes_and_reads_do_not_bump_version() throws Exception {
+    // arrange
+    HandlerMethod post = handler(new WidgetsController(), "post");
+    MockHttpServletResponse notFound = new MockHttpServletResponse();
+    notFound.setStatus(404);
+
+    // act
+    writeResponse(request("PUT", null), notFound, post);
+    writeResponse(request("GET", null), new MockHttpServletResponse(), handler(new WidgetsController(), "all"));
+    writeResponse(request("POST", null), new MockHttpServletResponse(), handler(new PlainController(), "all"));
+
+    // assert
+    assertEquals(0, interceptor.version("widgets"));
+  }
+
+  @Test
+  void test_handlers_without_both_annotations_are_left_alone() throws Exception {
+    for (HandlerMethod handler : new HandlerMethod[] {
+        handler(new WidgetsController(), "page"), handler(new PlainController(), "all") }) {
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      assertTrue(interceptor.preHandle(request("GET", interceptor.etag("widgets")), response, handler));
+      assertNull(response.getHeader("ETag"));
+    }
+    assertTrue(interceptor.preHandle(request("GET", null), new MockHttpServletResponse(), new Object()));
+  }
+
+  @Test
+  void test_anonymous_requests_always_reach_the_handler() throws Exception {
+    // arrange
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/widgets/all");
+    request.addHeader("If-None-Match", interceptor.etag("widgets"));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // act
+    boolean proceed = interceptor.preHandle(request, response, handler(new WidgetsController(), "all"));
+
+    // assert
+    assertTrue(proceed);
+    assertNull(response.getHeader("ETag"));
+  }
+
+  @Test
+  void test_out_of_band_bump() {
+    String before = interceptor.etag("widgets");
+    interceptor.bump("widgets");
+    assertNotEquals(before, interceptor.etag("widgets"));
+    assertEquals(0, interceptor.version("gadgets"));
+  }
+}
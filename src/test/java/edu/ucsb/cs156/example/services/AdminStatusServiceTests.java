@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = AdminStatusService.class)
+@TestPropertySource(properties = "app.admin.emails=phtcon@ucsb.edu,admin@ucsb.edu")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class AdminStatusServiceTests {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Autowired
+  AdminStatusService adminStatusService;
+
+  @Test
+  void test_configured_admin_does_not_query_users_table() {
+    assertTrue(adminStatusService.isAdmin("admin@ucsb.edu"));
+    assertTrue(adminStatusService.isConfiguredAdmin("phtcon@ucsb.edu"));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void test_database_admin_flag_is_cached() {
+    // arrange
+    User user = User.builder().email("ta@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("ta@ucsb.edu")).thenReturn(Optional.of(user));
+
+    // act and assert
+    assertTrue(adminStatusService.isAdmin("ta@ucsb.edu"));
+    assertTrue(adminStatusService.isAdmin("ta@ucsb.edu"));
+    assertFalse(adminStatusService.isConfiguredAdmin("ta@ucsb.edu"));
+    verify(userRepository, times(1)).findByEmail("ta@ucsb.edu");
+  }
+
+  @Test
+  void test_unknown_user_is_not_admin() {
+    when(userRepository.findByEmail("student@ucsb.edu")).thenReturn(Optional.empty());
+    assertFalse(adminStatusService.isAdmin("student@ucsb.edu"));
+  }
+
+  @Test
+  void test_invalidate_rereads_admin_flag() {
+    // arrange
+    User user = User.builder().email("ta@ucsb.edu").admin(false).build();
+    when(userRepository.findByEmail("ta@ucsb.edu")).thenReturn(Optional.of(user));
+    assertFalse(adminStatusService.isAdmin("ta@ucsb.edu"));
+
+    // act
+    user.setAdmin(true);
+    adminStatusService.invalidate("ta@ucsb.edu");
+
+    // assert
+    assertTrue(adminStatusService.isAdmin("ta@ucsb.edu"));
+    verify(userRepository, times(2)).findByEmail("ta@ucsb.edu");
+  }
+}
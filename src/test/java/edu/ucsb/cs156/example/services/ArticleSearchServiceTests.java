@@ -0,0 +1,225 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchResults;
+import edu.ucsb.cs156.example.models.PatchResult;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = ArticleSearchService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ArticleSearchServiceTests {
+
+  @MockBean
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  ArticleSearchService articleSearchService;
+
+  private static Articles article(long id, String title, String url, String explanation) {
+    return Articles.builder()
+        .id(id)
+        .title(title)
+        .url(url)
+        .explanation(explanation)
+        .email("cgaucho@ucsb.edu")
+        .build();
+  }
+
+  private void load(Articles... articles) {
+    when(articlesRepository.streamAll()).thenReturn(Stream.of(articles));
+    articleSearchService.load();
+  }
+
+  private List<Long> ids(ArticleSearchResults results) {
+    return results.getHits().stream().map(hit -> hit.getArticle().getId()).collect(Collectors.toList());
+  }
+
+  @Test
+  void test_title_matches_rank_above_explanation_matches() {
+    // arrange
+    load(article(1, "Cooking pasta", "https://food.example.com/pasta", "A guide to Spring onions"),
+        article(2, "Spring Boot in action", "https://spring.io/guides", "Controllers and services"),
+        article(3, "Gardening", "https://garden.example.com", "Nothing relevant here"));
+
+    // act
+    ArticleSearchResults results = articleSearchService.search("SPRING", 0, 10);
+
+    // assert
+    assertEquals(2, results.getTotal());
+    assertEquals(List.of(2L, 1L), ids(results));
+    assertTrue(results.getHits().get(0).getScore() > results.getHits().get(1).getScore());
+  }
+
+  @Test
+  void test_url_host_is_searchable() {
+    load(article(1, "News", "https://www.nytimes.com/2024/article.html", "Daily news"),
+        article(2, "More news", "not a url", null),
+        article(3, "Even more news", "nytimes", "no scheme, so no host"));
+    assertEquals(List.of(1L), ids(articleSearchService.search("nytimes", 0, 10)));
+    assertEquals(List.of(), ids(articleSearchService.search("article html", 0, 10)));
+  }
+
+  @Test
+  void test_articles_matching_more_terms_rank_higher() {
+    load(article(1, "Java streams", null, "Collectors explained"),
+        article(2, "Java records", null, "Immutable data"),
+        article(3, "Java streams and records", null, "Both at once"));
+    assertEquals(3L, ids(articleSearchService.search("streams records", 0, 10)).get(0));
+  }
+
+  @Test
+  void test_results_are_paged() {
+    // arrange
+    List<Articles> articles = new ArrayList<>();
+    for (long id = 1; id <= 25; id++) {
+      articles.add(article(id, "Article " + id, null, "matching " + "filler ".repeat((int) id)));
+    }
+    load(articles.toArray(new Articles[0]));
+
+    // act
+    ArticleSearchResults first = articleSearchService.search("matching", 0, 10);
+    ArticleSearchResults third = articleSearchService.search("matching", 20, 10);
+    ArticleSearchResults past = articleSearchService.search("matching", 40, 10);
+
+    // assert: shorter articles score higher
+    assertEquals(25, first.getTotal());
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), ids(first));
+    assertEquals(List.of(21L, 22L, 23L, 24L, 25L), ids(third));
+    assertEquals(20, third.getOffset());
+    assertEquals(25, past.getTotal());
+    assertTrue(past.getHits().isEmpty());
+  }
+
+  @Test
+  void test_queries_without_terms_match_nothing() {
+    load(article(1, "Anything", null, "at all"));
+    ArticleSearchResults results = articleSearchService.search(" -- ", 0, 10);
+    assertEquals(0, results.getTotal());
+    assertTrue(results.getHits().isEmpty());
+    assertTrue(articleSearchService.search(null, 0, 10).getHits().isEmpty());
+  }
+
+  @Test
+  void test_empty_index_matches_nothing() {
+    load();
+    assertEquals(0, articleSearchService.search("anything", 0, 10).getTotal());
+  }
+
+  @Test
+  void test_updates_replace_old_terms() {
+    // arrange
+    load(article(1, "Old title", null, "shared words"), article(2, "Other", null, "shared words"));
+    Articles updated = article(1, "New title", null, "different words");
+    updated.setVersion(4L);
+
+    // act
+    articleSearchService.index(updated);
+    updated.setTitle("changed without saving");
+
+    // assert
+    assertEquals(List.of(), ids(articleSearchService.search("old", 0, 10)));
+    assertEquals(List.of(1L), ids(articleSearchService.search("new", 0, 10)));
+    assertEquals(List.of(2L), ids(articleSearchService.search("shared", 0, 10)));
+    Articles hit = articleSearchService.search("new", 0, 10).getHits().get(0).getArticle();
+    assertEquals("New title", hit.getTitle());
+    assertEquals(4L, hit.getVersion());
+  }
+
+  @Test
+  void test_patch_is_applied_to_the_indexed_copy() {
+    // arrange
+    Articles indexed = article(1, "Old title", null, "shared words");
+    indexed.setVersion(3L);
+    load(indexed);
+
+    // act
+    articleSearchService.patched(PatchResult.builder().id(1L).version(4L)
+        .values(Map.of("title", "New title", "version", 4L)).build());
+
+    // assert
+    verify(articlesRepository, never()).findById(any());
+    assertEquals(List.of(), ids(articleSearchService.search("old", 0, 10)));
+    Articles hit = articleSearchService.search("new", 0, 10).getHits().get(0).getArticle();
+    assertEquals("shared words", hit.getExplanation());
+    assertEquals(4L, hit.getVersion());
+    assertEquals("Old title", indexed.getTitle());
+  }
+
+  @Test
+  void test_patch_reads_the_article_back_when_the_copy_is_stale_or_missing() {
+    // arrange
+    Articles stale = article(1, "Old title", null, "shared words");
+    stale.setVersion(3L);
+    load(stale);
+    Articles current = article(1, "Newest title", null, "shared words");
+    current.setVersion(6L);
+    when(articlesRepository.findById(1L)).thenReturn(Optional.of(current));
+    when(articlesRepository.findById(2L)).thenReturn(Optional.empty());
+
+    // act
+    articleSearchService.patched(PatchResult.builder().id(1L).version(6L)
+        .values(Map.of("title", "Newest title", "version", 6L)).build());
+    articleSearchService.patched(PatchResult.builder().id(2L).version(1L)
+        .values(Map.of("title", "Gone", "version", 1L)).build());
+
+    // assert
+    assertEquals(List.of(1L), ids(articleSearchService.search("newest", 0, 10)));
+    assertEquals(List.of(), ids(articleSearchService.search("gone", 0, 10)));
+  }
+
+  @Test
+  void test_new_and_removed_articles() {
+    // arrange
+    load(article(1, "First", null, "common"));
+
+    // act
+    articleSearchService.index(article(2, "Second", null, "common"));
+    articleSearchService.remove(1);
+    articleSearchService.remove(99);
+
+    // assert
+    assertEquals(List.of(2L), ids(articleSearchService.search("common", 0, 10)));
+    assertEquals(List.of(), ids(articleSearchService.search("first", 0, 10)));
+  }
+
+  @Test
+  void test_reload_replaces_index() {
+    load(article(1, "First", null, "common"));
+    load(article(2, "Second", null, "common"));
+    assertEquals(List.of(2L), ids(articleSearchService.search("common first second", 0, 10)));
+  }
+
+  @Test
+  void test_tokenize_and_host() {
+    List<String> terms = new ArrayList<>();
+    ArticleSearchService.tokenize("Hello, WORLD! ünïcode_2024", 1, (term, weight) -> terms.add(term));
+    assertEquals(List.of("hello", "world", "ünïcode", "2024"), terms);
+    assertEquals("spring.io", ArticleSearchService.host(" https://spring.io/guides "));
+    assertNull(ArticleSearchService.host("https://bad host/"));
+    assertNull(ArticleSearchService.host(null));
+  }
+}
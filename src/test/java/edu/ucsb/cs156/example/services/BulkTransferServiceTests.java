@@ -0,0 +1,363 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.interceptors.ConditionalGetInterceptor;
+import edu.ucsb.cs156.example.models.BulkImportError;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.BulkTransferService.Format;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { BulkTransferService.class, NdjsonExportService.class,
+    ConditionalGetInterceptor.class, BulkTransferServiceTests.Config.class })
+@TestPropertySource(properties = "app.bulk.maxReportedErrors=3")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class BulkTransferServiceTests {
+
+  @TestConfiguration
+  static class Config {
+    @Bean
+    ObjectMapper objectMapper() {
+      return Jackson2ObjectMapperBuilder.json().build();
+    }
+  }
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @MockBean
+  UCSBDateRepository ucsbDateRepository;
+
+  @MockBean
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @MockBean
+  RestaurantRepository restaurantRepository;
+
+  @MockBean
+  ArticlesRepository articlesRepository;
+
+  @MockBean
+  UCSBOrganizationCache ucsbOrganizationCache;
+
+  @MockBean
+  UCSBDiningCommonsCache ucsbDiningCommonsCache;
+
+  @MockBean
+  DiningCommonsLocator diningCommonsLocator;
+
+  @MockBean
+  TypeaheadService typeaheadService;
+
+  @MockBean
+  ArticleSearchService articleSearchService;
+
+  @Autowired
+  BulkTransferService bulkTransferService;
+
+  @Autowired
+  ConditionalGetInterceptor conditionalGetInterceptor;
+
+  private static InputStream input(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<Long> lines(BulkImportReport report) {
+    return report.getErrors().stream().map(BulkImportError::getLine).collect(Collectors.toList());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<List<T>> batches(ArgumentCaptor<Iterable<T>> captor) {
+    return captor.getAllValues().stream().map(batch -> (List<T>) batch).collect(Collectors.toList());
+  }
+
+  @Test
+  void test_tables() {
+    assertEquals(Set.of("ucsbdates", "ucsborganization", "ucsbdiningcommons", "ucsbdiningcommonsmenuitem",
+        "restaurant", "Articles"), bulkTransferService.tables());
+    assertThrows(IllegalArgumentException.class, () -> bulkTransferService.export("users", Format.CSV));
+  }
+
+  @Test
+  void test_missing() {
+    assertEquals("a is required", BulkTransferService.missing("a", null, "b", "x"));
+    assertEquals("b is required", BulkTransferService.missing("a", 1, "b", "  "));
+    assertNull(BulkTransferService.missing("a", "x"));
+  }
+
+  @Test
+  void test_csv_import_saves_in_batches_and_ignores_ids() throws IOException {
+    // arrange
+    when(ucsbDateRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    String csv = """
+        id,quarterYYYYQ,name,localDateTime
+        17,20241,first day,2024-01-08T08:00:00
+        ,20241,,2024-01-09T08:00:00
+        ,20241,second day,2024-01-09T08:00:00
+        ,20241,third day,2024-01-10T08:00:00
+        """;
+
+    // act
+    BulkImportReport report = bulkTransferService.importRows("ucsbdates", Format.CSV, input(csv), 2);
+
+    // assert
+    assertEquals("ucsbdates", report.getTable());
+    assertEquals(4, report.getRowsRead());
+    assertEquals(3, report.getImported());
+    assertEquals(1, report.getFailed());
+    assertEquals(List.of(BulkImportError.builder().line(3).message("name is required").build()), report.getErrors());
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Iterable<UCSBDate>> saved = ArgumentCaptor.forClass(Iterable.class);
+    verify(ucsbDateRepository, times(2)).saveAll(saved.capture());
+    List<List<UCSBDate>> batches = batches(saved);
+    assertEquals(List.of(2, 1), batches.stream().map(List::size).collect(Collectors.toList()));
+    UCSBDate first = batches.get(0).get(0);
+    assertEquals(0L, first.getId());
+    assertEquals("20241", first.getQuarterYYYYQ());
+    assertEquals(LocalDateTime.parse("2024-01-08T08:00:00"), first.getLocalDateTime());
+    assertEquals(2, conditionalGetInterceptor.version("ucsbdates"));
+  }
+
+  @Test
+  void test_json_lines_import_reports_unreadable_and_invalid_rows() throws IOException {
+    // arrange
+    when(articlesRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    String jsonLines = """
+        {"title": "One", "url": "https://example.org/1", "email": "a@ucsb.edu", "dateAdded": "2024-01-01T00:00:00"}
+
+        {"title": "Two", "url":
+        null
+        {"title": "Three", "url": "https://example.org/3", "email": "a@ucsb.edu", "dateAdded": "yesterday"}
+        {"id": 5, "title": "Four", "url": "https://example.org/4", "email": "a@ucsb.edu", "dateAdded": "2024-01-04T00:00:00"}
+        """;
+
+    // act
+    BulkImportReport report = bulkTransferService.importRows("Articles", Format.JSON_LINES, input(jsonLines), 0);
+
+    // assert
+    assertEquals(5, report.getRowsRead());
+    assertEquals(2, report.getImported());
+    assertEquals(3, report.getFailed());
+    assertEquals(List.of(3L, 4L, 5L), lines(report));
+    assertEquals("expected a JSON object", report.getErrors().get(1).getMessage());
+
+    ArgumentCaptor<Articles> indexed = ArgumentCaptor.forClass(Articles.class);
+    verify(articleSearchService, times(2)).index(indexed.capture());
+    assertEquals(List.of("One", "Four"), indexed.getAllValues().stream().map(Articles::getTitle).collect(Collectors.toList()));
+    assertEquals(0L, indexed.getAllValues().get(1).getId());
+    // batchSize 0 is raised to 1, so each saved row is its own batch
+    verify(articlesRepository, times(2)).saveAll(anyList());
+    assertEquals(2, conditionalGetInterceptor.version("Articles"));
+  }
+
+  @Test
+  void test_unknown_columns_and_bad_csv_rows_fail_and_errors_are_capped() throws IOException {
+    // arrange
+    when(restaurantRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    String csv = """
+        name,description,cuisine
+        Chipotle,burritos,
+        Panda Express,orange chicken,chinese
+        Freebirds,burritos,,extra
+        ,nameless,
+        Habit,burgers,american
+        """;
+
+    // act
+    BulkImportReport report = bulkTransferService.importRows("restaurant", Format.CSV, input(csv), 10);
+
+    // assert
+    assertEquals(5, report.getRowsRead());
+    assertEquals(1, report.getImported());
+    assertEquals(4, report.getFailed());
+    assertEquals(List.of(3L, 4L, 5L), lines(report));
+    verify(restaurantRepository, times(1)).saveAll(List.of(Restaurant.builder().name("Chipotle").description("burritos").build()));
+  }
+
+  @Test
+  void test_rejected_batch_is_retried_one_row_at_a_time() throws IOException {
+    // arrange
+    when(ucsbOrganizationRepository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<UCSBOrganization> rows = invocation.getArgument(0);
+      if (rows.size() > 1 || rows.get(0).getOrgTranslationShort().length() > 10) {
+        throw new DataIntegrityViolationException("value too long",
+            new IllegalStateException("value too long for column orgTranslationShort"));
+      }
+      return rows;
+    });
+    String jsonLines = """
+        {"orgCode": "ZPR", "orgTranslationShort": "ZETA PHI RHO"}
+        {"orgCode": "SKY", "orgTranslationShort": "SKYDIVING", "inactive": true}
+        """;
+
+    // act
+    BulkImportReport report = bulkTransferService.importRows("ucsborganization", Format.JSON_LINES, input(jsonLines), 10);
+
+    // assert
+    assertEquals(2, report.getRowsRead());
+    assertEquals(1, report.getImported());
+    assertEquals(List.of(BulkImportError.builder().line(1).message("value too long for column orgTranslationShort").build()),
+        report.getErrors());
+    verify(ucsbOrganizationCache, times(1)).saved("SKY");
+  }
+
+  @Test
+  void test_imports_notify_caches_and_indexes() throws IOException {
+    // arrange
+    when(ucsbDiningCommonsRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(ucsbDiningCommonsMenuItemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(restaurantRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    BulkImportReport commons = bulkTransferService.importRows("ucsbdiningcommons", Format.CSV, input("""
+        code,name,hasDiningCam,latitude,longitude
+        ortega,Ortega,true,,
+        carrillo,Carrillo,false,34.409953,-119.85277
+        """), 1000);
+    bulkTransferService.importRows("ucsbdiningcommonsmenuitem", Format.JSON_LINES, input("""
+        {"diningCommonsCode": "ortega", "name": "Pizza", "station": "Entrees"}
+        """), 1000);
+    bulkTransferService.importRows("restaurant", Format.JSON_LINES, input("""
+        {"name": "Chipotle"}
+        """), 1000);
+
+    // assert
+    assertEquals(2, commons.getImported());
+    verify(ucsbDiningCommonsRepository, times(1)).saveAll(List.of(
+        UCSBDiningCommons.builder().code("ortega").name("Ortega").hasDiningCam(true).build(),
+        UCSBDiningCommons.builder().code("carrillo").name("Carrillo").latitude(34.409953).longitude(-119.85277).build()));
+    verify(ucsbDiningCommonsCache, times(1)).saved("ortega");
+    verify(ucsbDiningCommonsCache, times(1)).saved("carrillo");
+    verify(diningCommonsLocator, times(1)).rebuild();
+    verify(typeaheadService, times(1)).menuItemSaved(
+        UCSBDiningCommonsMenuItem.builder().diningCommonsCode("ortega").name("Pizza").station("Entrees").build());
+    verify(typeaheadService, times(1)).restaurantSaved(Restaurant.builder().name("Chipotle").build());
+  }
+
+  @Test
+  void test_csv_export_writes_header_and_detaches_rows() throws IOException {
+    // arrange
+    UCSBDate date = UCSBDate.builder().id(3).quarterYYYYQ("20241").name("first day")
+        .localDateTime(LocalDateTime.parse("2024-01-08T08:00:00")).build();
+    when(ucsbDateRepository.streamAll()).thenReturn(Stream.of(date));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    bulkTransferService.export("ucsbdates", Format.CSV).writeTo(out);
+
+    // assert
+    assertEquals("id,quarterYYYYQ,name,localDateTime\n3,20241,\"first day\",2024-01-08T08:00:00\n",
+        out.toString(StandardCharsets.UTF_8));
+    verify(entityManager, times(1)).detach(date);
+  }
+
+  @Test
+  void test_csv_export_round_trips_through_import() throws IOException {
+    // arrange
+    Articles article = Articles.builder().id(9).title("Hello, world").url("https://example.org/hello")
+        .explanation("line one\nline two").email("a@ucsb.edu").dateAdded(LocalDateTime.parse("2024-01-01T00:00:00")).version(4L).build();
+    when(articlesRepository.streamAll()).thenReturn(Stream.of(article));
+    when(articlesRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    bulkTransferService.export("Articles", Format.CSV).writeTo(out);
+
+    // act
+    BulkImportReport report = bulkTransferService.importRows("Articles", Format.CSV, input(out.toString(StandardCharsets.UTF_8)), 10);
+
+    // assert
+    assertEquals(1, report.getImported());
+    article.setId(0);
+    article.setVersion(null);
+    verify(articlesRepository, times(1)).saveAll(List.of(article));
+  }
+
+  @Test
+  void test_json_lines_export_uses_ndjson_export() throws IOException {
+    // arrange
+    Restaurant restaurant = Restaurant.builder().id(1).name("Chipotle").build();
+    when(restaurantRepository.streamAll()).thenReturn(Stream.of(restaurant));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    bulkTransferService.export("restaurant", Format.JSON_LINES).writeTo(out);
+
+    // assert
+    assertEquals("{\"id\":1,\"name\":\"Chipotle\",\"description\":null}\n", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void test_csv_export_rethrows_write_failures() {
+    // arrange
+    when(ucsbOrganizationRepository.streamAll()).thenReturn(Stream.of(UCSBOrganization.builder().orgCode("ZPR").build()));
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+
+    // act and assert
+    IOException thrown = assertThrows(IOException.class,
+        () -> bulkTransferService.export("ucsborganization", Format.CSV).writeTo(broken));
+    assertEquals("connection reset", thrown.getMessage());
+  }
+}
@@ -0,0 +1,174 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.UserSnapshot;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { CurrentUserServiceImpl.class, AdminStatusService.class })
+@TestPropertySource(properties = "app.admin.emails=admin@ucsb.edu")
+class CurrentUserServiceImplTests {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @Autowired
+  CurrentUserServiceImpl currentUserService;
+
+  @AfterEach
+  void clearSecurityContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private OAuth2AuthenticationToken login(String email) {
+    DefaultOAuth2User principal = new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("sub", "sub-" + email, "email", email, "email_verified", true),
+        "sub");
+    OAuth2AuthenticationToken token = new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google");
+    SecurityContextHolder.getContext().setAuthentication(token);
+    return token;
+  }
+
+  @Test
+  void test_getCurrentUser_queries_users_table_once_per_session() {
+    // arrange
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+    login("cgaucho@ucsb.edu");
+
+    // act
+    CurrentUser first = currentUserService.getCurrentUser();
+    CurrentUser second = currentUserService.getCurrentUser();
+    User fromGetUser = currentUserService.getUser();
+
+    // assert
+    assertSame(first, second);
+    assertEquals(user, fromGetUser);
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_evictCurrentUser_forces_reload() {
+    // arrange
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+    login("cgaucho@ucsb.edu");
+    currentUserService.getCurrentUser();
+
+    // act
+    currentUserService.evictCurrentUser("cgaucho@ucsb.edu");
+    currentUserService.getCurrentUser();
+
+    // assert
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_new_session_resolves_user_again() {
+    // arrange
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+
+    // act
+    login("cgaucho@ucsb.edu");
+    currentUserService.getCurrentUser();
+    login("cgaucho@ucsb.edu");
+    CurrentUser cu = currentUserService.getCurrentUser();
+
+    // assert
+    assertEquals(UserSnapshot.of(user), cu.getUser());
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_first_login_saves_new_user() {
+    // arrange
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.empty());
+    login("admin@ucsb.edu");
+
+    // act
+    CurrentUser cu = currentUserService.getCurrentUser();
+
+    // assert
+    assertEquals("admin@ucsb.edu", cu.getUser().getEmail());
+    assertEquals(true, cu.getUser().getAdmin());
+    verify(userRepository, times(1)).save(any(User.class));
+  }
+
+  @Test
+  void test_cached_roles_are_an_immutable_copy() {
+    // arrange
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+    List<SimpleGrantedAuthority> authorities = new ArrayList<>(List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    doReturn(authorities).when(grantedAuthoritiesService).getGrantedAuthorities();
+    login("cgaucho@ucsb.edu");
+
+    // act
+    CurrentUser cu = currentUserService.getCurrentUser();
+    authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    // assert
+    assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), cu.getRoles());
+    assertThrows(UnsupportedOperationException.class, () -> cu.getRoles().clear());
+  }
+
+  @Test
+  void test_cached_user_is_a_copy() {
+    // arrange
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+    login("cgaucho@ucsb.edu");
+
+    // act
+    CurrentUser cu = currentUserService.getCurrentUser();
+    user.setAdmin(true);
+    currentUserService.getUser().setFullName("Changed by a caller");
+
+    // assert
+    assertEquals(UserSnapshot.builder().id(1L).email("cgaucho@ucsb.edu").build(), cu.getUser());
+    assertEquals(User.builder().id(1L).email("cgaucho@ucsb.edu").build(), currentUserService.getUser());
+  }
+
+  @Test
+  void test_getCurrentUser_when_logged_out_has_no_user() {
+    // act
+    CurrentUser cu = currentUserService.getCurrentUser();
+
+    // assert
+    assertNull(cu.getUser());
+  }
+}
@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = DiningCommonsLocator.class)
+class DiningCommonsLocatorTests {
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  DiningCommonsLocator diningCommonsLocator;
+
+  private static final UCSBDiningCommons CARRILLO = commons("carrillo", 34.409953, -119.85277);
+  private static final UCSBDiningCommons DLG = commons("de-la-guerra", 34.409811, -119.845026);
+  private static final UCSBDiningCommons ORTEGA = commons("ortega", 34.410987, -119.84709);
+  private static final UCSBDiningCommons PORTOLA = commons("portola", 34.417723, -119.867427);
+
+  private static UCSBDiningCommons commons(String code, Double latitude, Double longitude) {
+    return UCSBDiningCommons.builder().code(code).name(code).latitude(latitude).longitude(longitude).build();
+  }
+
+  private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * DiningCommonsLocator.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+  }
+
+  private static List<String> codes(List<DiningCommonsDistance> results) {
+    return results.stream().map(d -> d.getCommons().getCode()).collect(Collectors.toList());
+  }
+
+  private void load(UCSBDiningCommons... commons) {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(commons));
+    diningCommonsLocator.rebuild();
+  }
+
+  @Test
+  void test_nearest_orders_by_distance_and_reports_meters() {
+    // arrange
+    load(PORTOLA, ORTEGA, CARRILLO, DLG, commons("munger-hall", null, null), commons("nowhere", 34.4, null));
+
+    // act
+    List<DiningCommonsDistance> nearest = diningCommonsLocator.nearest(34.4100, -119.8470, 3);
+
+    // assert
+    assertEquals(List.of("ortega", "de-la-guerra", "carrillo"), codes(nearest));
+    assertEquals(haversine(34.4100, -119.8470, 34.410987, -119.84709), nearest.get(0).getDistanceMeters(), 1e-6);
+  }
+
+  @Test
+  void test_nearest_returns_everything_when_k_exceeds_size() {
+    load(CARRILLO, DLG);
+    assertEquals(List.of("carrillo", "de-la-guerra"), codes(diningCommonsLocator.nearest(34.41, -119.86, 10)));
+    assertTrue(diningCommonsLocator.nearest(34.41, -119.86, 0).isEmpty());
+  }
+
+  @Test
+  void test_empty_locator_finds_nothing() {
+    load();
+    assertTrue(diningCommonsLocator.nearest(34.41, -119.86, 3).isEmpty());
+    assertTrue(diningCommonsLocator.within(34.41, -119.86, 1e9).isEmpty());
+  }
+
+  @Test
+  void test_within_returns_commons_inside_radius_nearest_first() {
+    load(PORTOLA, ORTEGA, CARRILLO, DLG);
+    assertEquals(List.of("ortega", "de-la-guerra"), codes(diningCommonsLocator.within(34.4100, -119.8470, 250)));
+    assertEquals(4, diningCommonsLocator.within(34.4100, -119.8470, 1e9).size());
+    assertTrue(diningCommonsLocator.within(0, 0, 1000).isEmpty());
+  }
+
+  @Test
+  void test_rebuild_picks_up_writes() {
+    load(CARRILLO);
+    load(CARRILLO, ORTEGA);
+    assertEquals(List.of("ortega"), codes(diningCommonsLocator.nearest(34.4110, -119.8471, 1)));
+  }
+
+  @Test
+  void test_antipodal_distance_is_half_the_circumference() {
+    load(commons("north-pole", 90.0, 0.0));
+    double distance = diningCommonsLocator.nearest(-90, 0, 1).get(0).getDistanceMeters();
+    assertEquals(Math.PI * DiningCommonsLocator.EARTH_RADIUS_METERS, distance, 1e-3);
+    assertEquals(Math.PI * DiningCommonsLocator.EARTH_RADIUS_METERS, DiningCommonsLocator.meters(4.000001), 1e-3);
+  }
+
+  @Test
+  void test_tree_agrees_with_brute_force_haversine() {
+    // arrange
+    Random random = new Random(156);
+    List<UCSBDiningCommons> all = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      all.add(commons("c" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+    }
+    load(all.toArray(new UCSBDiningCommons[0]));
+
+    for (int query = 0; query < 50; query++) {
+      double latitude = random.nextDouble() * 180 - 90;
+      double longitude = random.nextDouble() * 360 - 180;
+      List<UCSBDiningCommons> byDistance = new ArrayList<>(all);
+      byDistance.sort(Comparator.comparingDouble(c -> haversine(latitude, longitude, c.getLatitude(), c.getLongitude())));
+
+      // act
+      List<DiningCommonsDistance> nearest = diningCommonsLocator.nearest(latitude, longitude, 7);
+      List<DiningCommonsDistance> within = diningCommonsLocator.within(latitude, longitude, 2_000_000);
+
+      // assert
+      assertEquals(byDistance.subList(0, 7).stream().map(UCSBDiningCommons::getCode).collect(Collectors.toList()),
+          codes(nearest));
+      List<String> expectedWithin = byDistance.stream()
+          .filter(c -> haversine(latitude, longitude, c.getLatitude(), c.getLongitude()) <= 2_000_000)
+          .map(UCSBDiningCommons::getCode)
+          .collect(Collectors.toList());
+      assertEquals(expectedWithin, codes(within));
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = FieldProjectionService.class)
+class FieldProjectionServiceTests {
+
+  @MockBean
+  EntityManager entityManager;
+
+  @Autowired
+  FieldProjectionService fieldProjectionService;
+
+  private final EntityType<Articles> articles = entityType();
+
+  @SuppressWarnings("unchecked")
+  private static EntityType<Articles> entityType() {
+    return mock(EntityType.class);
+  }
+
+  private static SingularAttribute<?, ?> attribute(String name, boolean id, PersistentAttributeType type) {
+    SingularAttribute<?, ?> attribute = mock(SingularAttribute.class);
+    when(attribute.getName()).thenReturn(name);
+    when(attribute.isId()).thenReturn(id);
+    when(attribute.getPersistentAttributeType()).thenReturn(type);
+    return attribute;
+  }
+
+  @BeforeEach
+  void metamodel() {
+    Set<SingularAttribute<? super Articles, ?>> attributes = new LinkedHashSet<>();
+    for (SingularAttribute<?, ?> attribute : List.of(
+        attribute("id", true, PersistentAttributeType.BASIC),
+        attribute("title", false, PersistentAttributeType.BASIC),
+        attribute("explanation", false, PersistentAttributeType.BASIC),
+        attribute("dateAdded", false, PersistentAttributeType.BASIC),
+        attribute("author", false, PersistentAttributeType.MANY_TO_ONE))) {
+      @SuppressWarnings("unchecked")
+      SingularAttribute<? super Articles, ?> articleAttribute = (SingularAttribute<? super Articles, ?>) attribute;
+      attributes.add(articleAttribute);
+    }
+    when(articles.getSingularAttributes()).thenReturn(attributes);
+    when(articles.getName()).thenReturn("Articles");
+    when(articles.getJavaType()).thenReturn(Articles.class);
+    Metamodel metamodel = mock(Metamodel.class);
+    when(metamodel.entity(Articles.class)).thenReturn(articles);
+    when(entityManager.getMetamodel()).thenReturn(metamodel);
+  }
+
+  @Test
+  void test_columns_start_with_the_id_and_skip_blanks_and_repeats() {
+    assertEquals(List.of("id", "title", "dateAdded"),
+        FieldProjectionService.columns(articles, " title, ,dateAdded,title,id"));
+    assertEquals(List.of("id"), FieldProjectionService.columns(articles, ""));
+  }
+
+  @Test
+  void test_unknown_and_non_column_fields_are_rejected() {
+    UnknownFieldException unknown = assertThrows(UnknownFieldException.class,
+        () -> fieldProjectionService.findAll(Articles.class, "title,titel"));
+    assertEquals("Articles has no field titel", unknown.getMessage());
+
+    assertThrows(UnknownFieldException.class, () -> fieldProjectionService.findAll(Articles.class, "author"));
+    verify(entityManager, never()).createQuery("select e.id, e.title from Articles e order by e.id", Tuple.class);
+  }
+
+  @Test
+  void test_find_all_selects_only_the_requested_columns() {
+    // arrange
+    @SuppressWarnings("unchecked")
+    TypedQuery<Tuple> query = mock(TypedQuery.class);
+    Tuple first = mock(Tuple.class);
+    when(first.get(0)).thenReturn(1L);
+    when(first.get(1)).thenReturn("First");
+    Tuple second = mock(Tuple.class);
+    when(second.get(0)).thenReturn(2L);
+    when(second.get(1)).thenReturn("Second");
+    when(query.getResultList()).thenReturn(List.of(first, second));
+    when(entityManager.createQuery("select e.id, e.title from Articles e order by e.id", Tuple.class)).thenReturn(query);
+
+    // act
+    List<Map<String, Object>> rows = fieldProjectionService.findAll(Articles.class, "title");
+
+    // assert
+    assertEquals(List.of(Map.of("id", 1L, "title", "First"), Map.of("id", 2L, "title", "Second")), rows);
+    assertEquals(List.of("id", "title"), List.copyOf(rows.get(0).keySet()));
+  }
+}
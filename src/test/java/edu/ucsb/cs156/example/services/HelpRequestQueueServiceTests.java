@@ -0,0 +1,375 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestQueue;
+import edu.ucsb.cs156.example.models.HelpRequestQueueChanges;
+import edu.ucsb.cs156.example.models.HelpRequestQueueEvent;
+import edu.ucsb.cs156.example.models.PatchResult;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = HelpRequestQueueService.class)
+@TestPropertySource(properties = "app.helpRequestQueue.eventLogSize=3")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class HelpRequestQueueServiceTests {
+
+  @MockBean
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  HelpRequestQueueService helpRequestQueueService;
+
+  @BeforeEach
+  void sendOnTheCallingThread() {
+    helpRequestQueueService.sender = Runnable::run;
+  }
+
+  private static HelpRequest request(long id, String requestTime, boolean solved) {
+    return HelpRequest.builder()
+        .id(id)
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .explanation("Swagger")
+        .solved(solved)
+        .requestTime(requestTime == null ? null : LocalDateTime.parse(requestTime))
+        .build();
+  }
+
+  private void loadQueue(HelpRequest... requests) {
+    when(helpRequestRepository.findAllBySolvedFalse()).thenReturn(List.of(requests));
+    helpRequestQueueService.load();
+  }
+
+  @Test
+  void test_queue_is_ordered_by_request_time_then_id() {
+    // arrange
+    HelpRequest later = request(1, "2022-04-20T17:40", false);
+    HelpRequest earlier = request(5, "2022-04-20T17:35", false);
+    HelpRequest tie = request(2, "2022-04-20T17:35", false);
+    HelpRequest untimed = request(9, null, false);
+
+    // act
+    loadQueue(later, earlier, tie, untimed);
+
+    // assert
+    assertEquals(List.of(untimed, tie, earlier, later), helpRequestQueueService.snapshot().getRequests());
+    assertEquals(1, helpRequestQueueService.snapshot().getVersion());
+  }
+
+  @Test
+  void test_new_unsolved_request_is_added_and_later_updated() {
+    // arrange
+    loadQueue(request(1, "2022-04-20T17:40", false));
+    HelpRequest incoming = request(2, "2022-04-20T17:45", false);
+
+    // act
+    helpRequestQueueService.saved(incoming);
+    incoming.setRequestTime(LocalDateTime.parse("2022-04-20T17:30"));
+    helpRequestQueueService.saved(incoming);
+
+    // assert
+    HelpRequestQueueChanges changes = helpRequestQueueService.changesSince(1);
+    assertEquals(3, changes.getVersion());
+    assertEquals(List.of(HelpRequestQueueEvent.Type.ADDED, HelpRequestQueueEvent.Type.UPDATED),
+        changes.getEvents().stream().map(HelpRequestQueueEvent::getType).toList());
+    assertEquals(List.of(2L, 1L),
+        helpRequestQueueService.snapshot().getRequests().stream().map(HelpRequest::getId).toList());
+  }
+
+  @Test
+  void test_queue_holds_copies_of_saved_requests() {
+    // arrange
+    loadQueue();
+    HelpRequest incoming = request(2, "2022-04-20T17:45", false);
+    incoming.setVersion(3L);
+
+    // act
+    helpRequestQueueService.saved(incoming);
+    incoming.setExplanation("changed without saving");
+
+    // assert
+    HelpRequest queued = helpRequestQueueService.snapshot().getRequests().get(0);
+    assertEquals("Swagger", queued.getExplanation());
+    assertEquals(3L, queued.getVersion());
+  }
+
+  @Test
+  void test_solving_a_queued_request_removes_it() {
+    // arrange
+    loadQueue(request(1, "2022-04-20T17:40", false));
+
+    // act
+    helpRequestQueueService.saved(request(1, "2022-04-20T17:40", true));
+
+    // assert
+    HelpRequestQueueEvent event = helpRequestQueueService.changesSince(1).getEvents().get(0);
+    assertEquals(HelpRequestQueueEvent.Type.SOLVED, event.getType());
+    assertEquals(1L, event.getId());
+    assertNull(event.getHelpRequest());
+    assertTrue(helpRequestQueueService.snapshot().getRequests().isEmpty());
+  }
+
+  @Test
+  void test_saving_an_already_solved_request_changes_nothing() {
+    loadQueue();
+    helpRequestQueueService.saved(request(1, "2022-04-20T17:40", true));
+    assertEquals(1, helpRequestQueueService.snapshot().getVersion());
+  }
+
+  private static PatchResult patch(long id, long version, Map<String, Object> fields) {
+    Map<String, Object> values = new HashMap<>(fields);
+    values.put("version", version);
+    return PatchResult.builder().id(id).version(version).values(values).build();
+  }
+
+  @Test
+  void test_patch_is_applied_to_the_queued_copy() {
+    // arrange
+    HelpRequest queued = request(1, "2022-04-20T17:40", false);
+    queued.setVersion(3L);
+    loadQueue(queued, request(2, "2022-04-20T17:45", false));
+
+    // act
+    helpRequestQueueService.patched(patch(1, 4, Map.of("requestTime", LocalDateTime.parse("2022-04-20T17:50"))));
+
+    // assert
+    verify(helpRequestRepository, never()).findById(any());
+    assertEquals(HelpRequestQueueEvent.Type.UPDATED, helpRequestQueueService.changesSince(1).getEvents().get(0).getType());
+    HelpRequest patched = helpRequestQueueService.snapshot().getRequests().get(1);
+    assertEquals(1L, patched.getId());
+    assertEquals(LocalDateTime.parse("2022-04-20T17:50"), patched.getRequestTime());
+    assertEquals("Swagger", patched.getExplanation());
+    assertEquals(4L, patched.getVersion());
+    assertEquals(3L, queued.getVersion());
+  }
+
+  @Test
+  void test_patch_of_a_request_that_stays_solved_changes_nothing() {
+    loadQueue();
+    helpRequestQueueService.patched(patch(1, 4, Map.of("explanation", "Javadoc")));
+    helpRequestQueueService.patched(patch(1, 5, Map.of("solved", true)));
+    verify(helpRequestRepository, never()).findById(any());
+    assertEquals(1, helpRequestQueueService.snapshot().getVersion());
+  }
+
+  @Test
+  void test_patch_reads_the_row_back_when_it_is_reopened_or_the_copy_is_stale() {
+    // arrange
+    HelpRequest stale = request(1, "2022-04-20T17:40", false);
+    stale.setVersion(3L);
+    loadQueue(stale);
+    HelpRequest reopened = request(2, "2022-04-20T17:45", false);
+    reopened.setVersion(5L);
+    HelpRequest current = request(1, "2022-04-20T17:40", false);
+    current.setExplanation("Javadoc");
+    current.setVersion(6L);
+    when(helpRequestRepository.findById(2L)).thenReturn(Optional.of(reopened));
+    when(helpRequestRepository.findById(1L)).thenReturn(Optional.of(current));
+
+    // act
+    helpRequestQueueService.patched(patch(2, 5, Map.of("solved", false)));
+    helpRequestQueueService.patched(patch(1, 6, Map.of("explanation", "Javadoc")));
+
+    // assert
+    assertEquals(List.of(current, reopened), helpRequestQueueService.snapshot().getRequests());
+  }
+
+  @Test
+  void test_deleting_a_queued_request_removes_it() {
+    // arrange
+    loadQueue(request(1, "2022-04-20T17:40", false));
+
+    // act
+    helpRequestQueueService.deleted(1);
+    helpRequestQueueService.deleted(42);
+
+    // assert
+    HelpRequestQueueChanges changes = helpRequestQueueService.changesSince(1);
+    assertEquals(2, changes.getVersion());
+    assertEquals(HelpRequestQueueEvent.Type.DELETED, changes.getEvents().get(0).getType());
+    assertTrue(helpRequestQueueService.snapshot().getRequests().isEmpty());
+  }
+
+  @Test
+  void test_changes_since_current_version_are_empty() {
+    loadQueue(request(1, "2022-04-20T17:40", false));
+    HelpRequestQueueChanges changes = helpRequestQueueService.changesSince(1);
+    assertFalse(changes.getReset());
+    assertTrue(changes.getEvents().isEmpty());
+  }
+
+  @Test
+  void test_changes_since_an_expired_or_unknown_version_reset_the_client() {
+    // arrange
+    HelpRequest waiting = request(1, "2022-04-20T17:40", false);
+    loadQueue(waiting);
+    for (long id = 2; id <= 5; id++) {
+      helpRequestQueueService.saved(request(id, "2022-04-20T18:00", false));
+    }
+
+    // act
+    HelpRequestQueueChanges stillLogged = helpRequestQueueService.changesSince(2);
+    HelpRequestQueueChanges expired = helpRequestQueueService.changesSince(1);
+    HelpRequestQueueChanges fromTheFuture = helpRequestQueueService.changesSince(99);
+    HelpRequestQueueChanges beforeLoad = helpRequestQueueService.changesSince(0);
+
+    // assert
+    assertEquals(List.of(3L, 4L, 5L), stillLogged.getEvents().stream().map(HelpRequestQueueEvent::getVersion).toList());
+    assertTrue(expired.getReset());
+    assertEquals(5, expired.getRequests().size());
+    assertTrue(fromTheFuture.getReset());
+    assertTrue(beforeLoad.getReset());
+  }
+
+  @Test
+  void test_subscribe_uses_configured_timeout() {
+    loadQueue();
+    SseEmitter emitter = helpRequestQueueService.subscribe();
+    assertEquals(1_800_000L, emitter.getTimeout());
+  }
+
+  @Test
+  void test_subscribers_get_snapshot_then_changes() throws IOException {
+    // arrange
+    loadQueue();
+    SseEmitter emitter = mock(SseEmitter.class);
+
+    // act
+    helpRequestQueueService.subscribe(emitter);
+    helpRequestQueueService.saved(request(1, "2022-04-20T17:40", false));
+
+    // assert
+    verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_finished_emitters_are_unsubscribed() throws IOException {
+    // arrange
+    loadQueue();
+    SseEmitter completed = mock(SseEmitter.class);
+    SseEmitter timedOut = mock(SseEmitter.class);
+    SseEmitter failed = mock(SseEmitter.class);
+    helpRequestQueueService.subscribe(completed);
+    helpRequestQueueService.subscribe(timedOut);
+    helpRequestQueueService.subscribe(failed);
+
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    verify(completed).onCompletion(onCompletion.capture());
+    ArgumentCaptor<Runnable> onTimeout = ArgumentCaptor.forClass(Runnable.class);
+    verify(timedOut).onTimeout(onTimeout.capture());
+    ArgumentCaptor<Consumer<Throwable>> onError = ArgumentCaptor.forClass(Consumer.class);
+    verify(failed).onError(onError.capture());
+
+    // act
+    onCompletion.getValue().run();
+    onTimeout.getValue().run();
+    onError.getValue().accept(new IOException("Broken pipe"));
+    helpRequestQueueService.saved(request(1, "2022-04-20T17:40", false));
+
+    // assert: only the initial snapshot was sent to each
+    verify(completed, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    verify(timedOut, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    verify(failed, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+  }
+
+  @Test
+  void test_emitter_that_fails_to_send_is_dropped() throws IOException {
+    // arrange
+    loadQueue();
+    SseEmitter broken = mock(SseEmitter.class);
+    doThrow(new IOException("Broken pipe")).when(broken).send(any(SseEmitter.SseEventBuilder.class));
+
+    // act
+    helpRequestQueueService.subscribe(broken);
+    helpRequestQueueService.saved(request(1, "2022-04-20T17:40", false));
+
+    // assert
+    verify(broken, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+  }
+
+  // "snapshot 2" or "change 3": the event name and the queue version it carries
+  private static String describe(SseEmitter.SseEventBuilder event) {
+    List<Object> data = event.build().stream().map(ResponseBodyEmitter.DataWithMediaType::getData).toList();
+    String name = ((String) data.get(0)).split("\n")[0].substring("event:".length());
+    long version = data.get(1) instanceof HelpRequestQueue queue
+        ? queue.getVersion()
+        : ((HelpRequestQueueEvent) data.get(1)).getVersion();
+    return name + " " + version;
+  }
+
+  @Test
+  void test_stream_gets_the_changes_after_its_snapshot_in_version_order() throws IOException {
+    // arrange: hold back the sender, as a busy sender thread would
+    loadQueue();
+    List<Runnable> pending = new ArrayList<>();
+    helpRequestQueueService.sender = pending::add;
+    SseEmitter emitter = mock(SseEmitter.class);
+
+    // act: the first change is already in the snapshot, but is sent after the stream opens
+    helpRequestQueueService.saved(request(1, "2022-04-20T17:40", false));
+    helpRequestQueueService.subscribe(emitter);
+    helpRequestQueueService.saved(request(2, "2022-04-20T17:45", false));
+    helpRequestQueueService.deleted(1);
+    pending.forEach(Runnable::run);
+
+    // assert
+    ArgumentCaptor<SseEmitter.SseEventBuilder> sent = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+    verify(emitter, times(3)).send(sent.capture());
+    assertEquals(List.of("snapshot 2", "change 3", "change 4"),
+        sent.getAllValues().stream().map(HelpRequestQueueServiceTests::describe).toList());
+  }
+
+  @Test
+  void test_changes_are_sent_from_the_sender_thread() throws Exception {
+    // arrange
+    HelpRequestQueueService service = new HelpRequestQueueService();
+    CompletableFuture<String> thread = new CompletableFuture<>();
+
+    // act
+    service.sender.execute(() -> thread.complete(Thread.currentThread().getName()));
+
+    // assert
+    assertEquals("help-request-queue-sender", thread.get(10, TimeUnit.SECONDS));
+    service.shutdown();
+    assertTrue(((ExecutorService) service.sender).isShutdown());
+  }
+}
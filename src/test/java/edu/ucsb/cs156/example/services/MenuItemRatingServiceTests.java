@@ -0,0 +1,294 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.persistence.EntityManager;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = MenuItemRatingService.class)
+class MenuItemRatingServiceTests {
+
+  @MockBean
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @MockBean
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @Autowired
+  MenuItemRatingService menuItemRatingService;
+
+  @Test
+  void test_unrated_item_has_zero_rating() {
+    when(menuItemRatingRepository.findById(7L)).thenReturn(Optional.empty());
+    assertEquals(MenuItemRating.builder().itemId(7).build(), menuItemRatingService.getRating(7));
+  }
+
+  @Test
+  void test_first_review_creates_rating() {
+    // arrange
+    MenuItemRating inserted = MenuItemRating.builder().itemId(7).build();
+    when(menuItemRatingRepository.findForUpdate(7L)).thenReturn(Optional.empty(), Optional.of(inserted));
+
+    // act
+    menuItemRatingService.reviewAdded(7, 4);
+
+    // assert
+    InOrder inOrder = inOrder(transactionManager, entityManager, menuItemRatingRepository);
+    inOrder.verify(transactionManager).getTransaction(
+        argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    inOrder.verify(entityManager).persist(MenuItemRating.builder().itemId(7).build());
+    inOrder.verify(transactionManager).commit(any());
+    inOrder.verify(menuItemRatingRepository).findForUpdate(7L);
+    MenuItemRating expected = MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(4).averageStars(4.0).fourStars(1).build();
+    inOrder.verify(menuItemRatingRepository).save(expected);
+  }
+
+  @Test
+  void test_first_review_that_loses_the_insert_race_locks_the_other_row() {
+    // arrange
+    MenuItemRating concurrent = MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(5).averageStars(5.0).fiveStars(1).build();
+    when(menuItemRatingRepository.findForUpdate(7L)).thenReturn(Optional.empty(), Optional.of(concurrent));
+    doThrow(new DataIntegrityViolationException("duplicate key"))
+        .when(entityManager).persist(MenuItemRating.builder().itemId(7).build());
+
+    // act
+    menuItemRatingService.reviewAdded(7, 3);
+
+    // assert
+    verify(transactionManager, times(1)).rollback(any());
+    verify(transactionManager, never()).commit(any());
+    MenuItemRating expected = MenuItemRating.builder()
+        .itemId(7).reviewCount(2).starTotal(8).averageStars(4.0).threeStars(1).fiveStars(1).build();
+    verify(menuItemRatingRepository, times(1)).save(expected);
+  }
+
+  @Test
+  void test_review_added_to_existing_rating() {
+    // arrange
+    MenuItemRating rating = MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(4).averageStars(4.0).fourStars(1).build();
+    when(menuItemRatingRepository.findForUpdate(7L)).thenReturn(Optional.of(rating));
+
+    // act
+    menuItemRatingService.reviewAdded(7, 1);
+
+    // assert
+    MenuItemRating expected = MenuItemRating.builder()
+        .itemId(7).reviewCount(2).starTotal(5).averageStars(2.5).oneStar(1).fourStars(1).build();
+    verify(menuItemRatingRepository, times(1)).save(expected);
+  }
+
+  @Test
+  void test_removing_last_review_deletes_rating() {
+    // arrange
+    MenuItemRating rating = MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(5).averageStars(5.0).fiveStars(1).build();
+    when(menuItemRatingRepository.findForUpdate(7L)).thenReturn(Optional.of(rating));
+
+    // act
+    menuItemRatingService.reviewRemoved(7, 5);
+
+    // assert
+    verify(menuItemRatingRepository, times(1)).delete(rating);
+    verify(menuItemRatingRepository, never()).save(any());
+  }
+
+  @Test
+  void test_removing_one_of_several_reviews_updates_rating() {
+    // arrange
+    MenuItemRating rating = MenuItemRating.builder()
+        .itemId(7).reviewCount(2).starTotal(5).averageStars(2.5).twoStars(1).threeStars(1).build();
+    when(menuItemRatingRepository.findForUpdate(7L)).thenReturn(Optional.of(rating));
+
+    // act
+    menuItemRatingService.reviewRemoved(7, 2);
+
+    // assert
+    MenuItemRating expected = MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(3).averageStars(3.0).threeStars(1).build();
+    verify(menuItemRatingRepository, times(1)).save(expected);
+    verify(menuItemRatingRepository, never()).delete(any());
+  }
+
+  @Test
+  void test_moving_review_between_items() {
+    // arrange
+    MenuItemRating from = MenuItemRating.builder()
+        .itemId(10).reviewCount(2).starTotal(6).averageStars(3.0).oneStar(1).fiveStars(1).build();
+    when(menuItemRatingRepository.findForUpdate(10L)).thenReturn(Optional.of(from));
+    when(menuItemRatingRepository.findForUpdate(3L))
+        .thenReturn(Optional.empty(), Optional.of(MenuItemRating.builder().itemId(3).build()));
+
+    // act
+    menuItemRatingService.reviewChanged(10, 5, 3, 2);
+
+    // assert
+    verify(menuItemRatingRepository, times(1)).save(MenuItemRating.builder()
+        .itemId(10).reviewCount(1).starTotal(1).averageStars(1.0).oneStar(1).build());
+    verify(menuItemRatingRepository, times(1)).save(MenuItemRating.builder()
+        .itemId(3).reviewCount(1).starTotal(2).averageStars(2.0).twoStars(1).build());
+  }
+
+  @Test
+  void test_changing_stars_on_same_item() {
+    // arrange
+    MenuItemRating rating = MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(2).averageStars(2.0).twoStars(1).build();
+    when(menuItemRatingRepository.findForUpdate(7L)).thenReturn(Optional.of(rating));
+
+    // act
+    menuItemRatingService.reviewChanged(7, 2, 7, 4);
+
+    // assert
+    assertEquals(MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(4).averageStars(4.0).fourStars(1).build(), rating);
+    verify(menuItemRatingRepository, never()).delete(any());
+  }
+
+  @Test
+  void test_moving_review_to_lower_item_id() {
+    // arrange
+    MenuItemRating from = MenuItemRating.builder()
+        .itemId(10).reviewCount(1).starTotal(5).averageStars(5.0).fiveStars(1).build();
+    when(menuItemRatingRepository.findForUpdate(10L)).thenReturn(Optional.of(from));
+    when(menuItemRatingRepository.findForUpdate(3L))
+        .thenReturn(Optional.empty(), Optional.of(MenuItemRating.builder().itemId(3).build()));
+
+    // act
+    menuItemRatingService.reviewChanged(10, 5, 3, 5);
+
+    // assert
+    verify(menuItemRatingRepository, times(1)).save(MenuItemRating.builder()
+        .itemId(3).reviewCount(1).starTotal(5).averageStars(5.0).fiveStars(1).build());
+    verify(menuItemRatingRepository, times(1)).delete(from);
+  }
+
+  @Test
+  void test_moving_review_to_higher_item_id_removes_first() {
+    // arrange
+    MenuItemRating from = MenuItemRating.builder()
+        .itemId(3).reviewCount(1).starTotal(4).averageStars(4.0).fourStars(1).build();
+    MenuItemRating to = MenuItemRating.builder().itemId(10).build();
+    when(menuItemRatingRepository.findForUpdate(3L)).thenReturn(Optional.of(from));
+    when(menuItemRatingRepository.findForUpdate(10L)).thenReturn(Optional.of(to));
+
+    // act
+    menuItemRatingService.reviewChanged(3, 4, 10, 4);
+
+    // assert
+    InOrder order = inOrder(menuItemRatingRepository);
+    order.verify(menuItemRatingRepository).findForUpdate(3L);
+    order.verify(menuItemRatingRepository).findForUpdate(10L);
+    verify(menuItemRatingRepository, times(1)).delete(from);
+    assertEquals(MenuItemRating.builder()
+        .itemId(10).reviewCount(1).starTotal(4).averageStars(4.0).fourStars(1).build(), to);
+  }
+
+  @Test
+  void test_out_of_range_stars_count_toward_average_only() {
+    // arrange
+    when(menuItemRatingRepository.findForUpdate(7L))
+        .thenReturn(Optional.empty(), Optional.of(MenuItemRating.builder().itemId(7).build()));
+
+    // act
+    menuItemRatingService.reviewAdded(7, 0);
+
+    // assert
+    verify(menuItemRatingRepository, times(1)).save(MenuItemRating.builder()
+        .itemId(7).reviewCount(1).starTotal(0).averageStars(0.0).build());
+  }
+
+  @Test
+  void test_unchanged_review_does_not_touch_ratings() {
+    menuItemRatingService.reviewChanged(7, 4, 7, 4);
+    verify(menuItemRatingRepository, never()).findForUpdate(any(Long.class));
+  }
+
+  @Test
+  void test_top_rated_requires_at_least_one_review() {
+    menuItemRatingService.topRated(5, 0);
+    verify(menuItemRatingRepository, times(1))
+        .findByReviewCountGreaterThanEqualOrderByAverageStarsDescReviewCountDesc(1L, PageRequest.of(0, 5));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_rebuild_aggregates_existing_reviews() {
+    // arrange
+    when(menuItemRatingRepository.count()).thenReturn(0L);
+    when(menuItemReviewRepository.count()).thenReturn(3L);
+    when(menuItemReviewRepository.streamAll()).thenReturn(Stream.of(
+        MenuItemReview.builder().id(1).itemId(7).stars(5).build(),
+        MenuItemReview.builder().id(2).itemId(7).stars(3).build(),
+        MenuItemReview.builder().id(3).itemId(9).stars(1).build()));
+
+    // act
+    menuItemRatingService.rebuildIfEmpty();
+
+    // assert
+    ArgumentCaptor<Iterable<MenuItemRating>> saved = ArgumentCaptor.forClass(Iterable.class);
+    verify(menuItemRatingRepository, times(1)).saveAll(saved.capture());
+    Map<Long, MenuItemRating> byItem = StreamSupport.stream(saved.getValue().spliterator(), false)
+        .collect(Collectors.toMap(MenuItemRating::getItemId, rating -> rating));
+    assertEquals(MenuItemRating.builder().itemId(7).reviewCount(2).starTotal(8).averageStars(4.0)
+        .threeStars(1).fiveStars(1).build(), byItem.get(7L));
+    assertEquals(MenuItemRating.builder().itemId(9).reviewCount(1).starTotal(1).averageStars(1.0)
+        .oneStar(1).build(), byItem.get(9L));
+  }
+
+  @Test
+  void test_rebuild_skipped_when_there_are_no_reviews() {
+    when(menuItemRatingRepository.count()).thenReturn(0L);
+    when(menuItemReviewRepository.count()).thenReturn(0L);
+    menuItemRatingService.rebuildIfEmpty();
+    verify(menuItemReviewRepository, never()).streamAll();
+  }
+
+  @Test
+  void test_rebuild_skipped_when_ratings_exist() {
+    when(menuItemRatingRepository.count()).thenReturn(4L);
+    menuItemRatingService.rebuildIfEmpty();
+    verify(menuItemReviewRepository, never()).streamAll();
+    verify(menuItemRatingRepository, never()).saveAll(any());
+  }
+}
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { NdjsonExportService.class, ObjectMapper.class })
+class NdjsonExportServiceTests {
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @Autowired
+  NdjsonExportService ndjsonExportService;
+
+  @Test
+  void test_rows_are_written_one_per_line_and_detached() throws IOException {
+    // arrange
+    Restaurant first = Restaurant.builder().id(1).name("Freebirds").description("Burritos").build();
+    Restaurant second = Restaurant.builder().id(2).name("Woodstock's").description("Pizza").build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    ndjsonExportService.export(() -> Stream.of(first, second)).writeTo(out);
+
+    // assert
+    assertEquals("""
+        {"id":1,"name":"Freebirds","description":"Burritos"}
+        {"id":2,"name":"Woodstock's","description":"Pizza"}
+        """, out.toString());
+    verify(entityManager, times(1)).detach(first);
+    verify(entityManager, times(1)).detach(second);
+  }
+
+  @Test
+  void test_write_failure_surfaces_as_io_exception() {
+    // arrange
+    Restaurant row = Restaurant.builder().id(1).name("Freebirds").description("Burritos").build();
+    StreamingResponseBody body = ndjsonExportService.export(() -> Stream.of(row));
+    OutputStream brokenPipe = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+
+    // act and assert
+    IOException e = assertThrows(IOException.class, () -> body.writeTo(brokenPipe));
+    assertEquals("Broken pipe", e.getMessage());
+  }
+}
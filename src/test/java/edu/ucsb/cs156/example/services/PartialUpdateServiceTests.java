@@ -0,0 +1,168 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.FieldValueException;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+import edu.ucsb.cs156.example.models.PatchResult;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { PartialUpdateService.class, JacksonAutoConfiguration.class })
+class PartialUpdateServiceTests {
+
+  @MockBean
+  EntityManager entityManager;
+
+  @MockBean
+  RowStatementService rowStatements;
+
+  @Autowired
+  PartialUpdateService partialUpdateService;
+
+  private static SingularAttribute<?, ?> attribute(String name, Class<?> javaType, PersistentAttributeType type) {
+    SingularAttribute<?, ?> attribute = mock(SingularAttribute.class);
+    when(attribute.getName()).thenReturn(name);
+    when(attribute.isId()).thenReturn(name.equals("id"));
+    when(attribute.isVersion()).thenReturn(name.equals("version"));
+    when(attribute.getPersistentAttributeType()).thenReturn(type);
+    doReturn(javaType).when(attribute).getJavaType();
+    return attribute;
+  }
+
+  @BeforeEach
+  void metamodel() {
+    Set<SingularAttribute<? super HelpRequest, ?>> attributes = new LinkedHashSet<>();
+    for (SingularAttribute<?, ?> attribute : List.of(
+        attribute("id", long.class, PersistentAttributeType.BASIC),
+        attribute("explanation", String.class, PersistentAttributeType.BASIC),
+        attribute("requestTime", LocalDateTime.class, PersistentAttributeType.BASIC),
+        attribute("solved", boolean.class, PersistentAttributeType.BASIC),
+        attribute("requester", Object.class, PersistentAttributeType.MANY_TO_ONE),
+        attribute("version", Long.class, PersistentAttributeType.BASIC))) {
+      @SuppressWarnings("unchecked")
+      SingularAttribute<? super HelpRequest, ?> helpRequestAttribute = (SingularAttribute<? super HelpRequest, ?>) attribute;
+      attributes.add(helpRequestAttribute);
+    }
+    @SuppressWarnings("unchecked")
+    EntityType<HelpRequest> helpRequests = mock(EntityType.class);
+    when(helpRequests.getSingularAttributes()).thenReturn(attributes);
+    Metamodel metamodel = mock(Metamodel.class);
+    when(metamodel.entity(HelpRequest.class)).thenReturn(helpRequests);
+    when(entityManager.getMetamodel()).thenReturn(metamodel);
+  }
+
+  private static Map<String, Object> fields() {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    fields.put("explanation", null);
+    fields.put("requestTime", "2022-05-20T17:35:00");
+    fields.put("solved", true);
+    return fields;
+  }
+
+  @Test
+  void test_patch_is_one_update_of_the_given_fields_and_the_version() {
+    // arrange
+    Map<String, Object> converted = fields();
+    converted.put("requestTime", LocalDateTime.parse("2022-05-20T17:35:00"));
+    when(rowStatements.update(HelpRequest.class, 67L, 3L, converted)).thenReturn(1);
+
+    // act
+    PatchResult result = partialUpdateService.patch(HelpRequest.class, 67L, 3L, fields());
+
+    // assert
+    Map<String, Object> written = new LinkedHashMap<>(converted);
+    written.put("version", 4L);
+    assertEquals(PatchResult.builder().id(67L).version(4L).values(written).build(), result);
+    verify(rowStatements).update(HelpRequest.class, 67L, 3L, converted);
+    verify(entityManager, never()).find(HelpRequest.class, 67L);
+  }
+
+  @Test
+  void test_patch_of_a_stale_version_is_an_optimistic_locking_failure() {
+    // arrange
+    when(entityManager.find(HelpRequest.class, 67L)).thenReturn(HelpRequest.builder().id(67L).version(4L).build());
+
+    // act and assert
+    assertThrows(ObjectOptimisticLockingFailureException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, fields()));
+  }
+
+  @Test
+  void test_patch_of_a_missing_row_is_not_found() {
+    // arrange
+
+    // act
+    EntityNotFoundException missing = assertThrows(EntityNotFoundException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, fields()));
+
+    // assert
+    assertEquals("HelpRequest with id 67 not found", missing.getMessage());
+  }
+
+  @Test
+  void test_id_version_and_unknown_fields_are_rejected() {
+    FieldValueException id = assertThrows(FieldValueException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("id", 5)));
+    assertEquals("HelpRequest field id cannot be updated", id.getMessage());
+    FieldValueException version = assertThrows(FieldValueException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("version", 9)));
+    assertEquals("HelpRequest field version cannot be updated", version.getMessage());
+    UnknownFieldException unknown = assertThrows(UnknownFieldException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("solvd", true)));
+    assertEquals("HelpRequest has no field solvd", unknown.getMessage());
+    assertThrows(UnknownFieldException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("requester", 1)));
+
+    verify(rowStatements, never()).update(any(), any(), anyLong(), any());
+  }
+
+  @Test
+  void test_values_that_do_not_fit_the_field_are_rejected() {
+    Map<String, Object> unsolved = new LinkedHashMap<>();
+    unsolved.put("solved", null);
+    FieldValueException nullPrimitive = assertThrows(FieldValueException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, unsolved));
+    assertEquals("HelpRequest field solved cannot be null", nullPrimitive.getMessage());
+    FieldValueException notBoolean = assertThrows(FieldValueException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("solved", "maybe")));
+    assertEquals("HelpRequest field solved must be a Boolean", notBoolean.getMessage());
+    FieldValueException notDate = assertThrows(FieldValueException.class,
+        () -> partialUpdateService.patch(HelpRequest.class, 67L, 3L, Map.of("requestTime", "soon")));
+    assertEquals("HelpRequest field requestTime must be a LocalDateTime", notDate.getMessage());
+
+    verify(rowStatements, never()).update(any(), any(), anyLong(), any());
+  }
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { UCSBOrganizationCache.class, UCSBDiningCommonsCache.class, ObjectMapper.class,
+    SimpleMeterRegistry.class })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReferenceDataCacheTests {
+
+  @MockBean
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBOrganizationCache ucsbOrganizationCache;
+
+  @Autowired
+  UCSBDiningCommonsCache ucsbDiningCommonsCache;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  private static final UCSBOrganization ZPR = UCSBOrganization.builder()
+      .orgCode("ZPR")
+      .orgTranslationShort("ZETA PHI RHO")
+      .orgTranslation("ZETA PHI RHO")
+      .inactive(false)
+      .build();
+
+  private static final UCSBDiningCommons CARRILLO = UCSBDiningCommons.builder()
+      .code("carrillo")
+      .name("Carrillo")
+      .latitude(34.409953)
+      .longitude(-119.85277)
+      .build();
+
+  private double gets(String cache, String result) {
+    return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+  }
+
+  @Test
+  void test_lookups_by_id_are_cached_and_counted() {
+    // arrange
+    when(ucsbOrganizationRepository.findById("ZPR")).thenReturn(Optional.of(ZPR));
+    when(ucsbOrganizationRepository.findById("MHAC")).thenReturn(Optional.empty());
+
+    // act
+    Optional<UCSBOrganization> first = ucsbOrganizationCache.findById("ZPR");
+    Optional<UCSBOrganization> second = ucsbOrganizationCache.findById("ZPR");
+    ucsbOrganizationCache.findById("MHAC");
+    ucsbOrganizationCache.findById("MHAC");
+
+    // assert
+    assertSame(ZPR, first.get());
+    assertSame(ZPR, second.get());
+    verify(ucsbOrganizationRepository, times(1)).findById("ZPR");
+    verify(ucsbOrganizationRepository, times(1)).findById("MHAC");
+    assertEquals(2.0, gets("ucsbOrganizations", "hit"));
+    assertEquals(2.0, gets("ucsbOrganizations", "miss"));
+  }
+
+  @Test
+  void test_writes_invalidate_the_row() {
+    // arrange
+    when(ucsbDiningCommonsRepository.findById("carrillo")).thenReturn(Optional.empty());
+    ucsbDiningCommonsCache.findById("carrillo");
+
+    // act
+    when(ucsbDiningCommonsRepository.findById("carrillo")).thenReturn(Optional.of(CARRILLO));
+    ucsbDiningCommonsCache.saved("carrillo");
+    Optional<UCSBDiningCommons> afterSave = ucsbDiningCommonsCache.findById("carrillo");
+    when(ucsbDiningCommonsRepository.findById("carrillo")).thenReturn(Optional.empty());
+    ucsbDiningCommonsCache.deleted("carrillo");
+    Optional<UCSBDiningCommons> afterDelete = ucsbDiningCommonsCache.findById("carrillo");
+
+    // assert
+    assertSame(CARRILLO, afterSave.get());
+    assertFalse(afterDelete.isPresent());
+    verify(ucsbDiningCommonsRepository, times(3)).findById("carrillo");
+  }
+
+  @Test
+  void test_all_json_is_serialized_once_per_write() throws Exception {
+    // arrange
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(ZPR));
+
+    // act
+    byte[] first = ucsbOrganizationCache.allJson();
+    byte[] second = ucsbOrganizationCache.allJson();
+    ucsbOrganizationCache.saved("ZPR");
+    byte[] afterWrite = ucsbOrganizationCache.allJson();
+
+    // assert
+    assertArrayEquals(mapper.writeValueAsBytes(List.of(ZPR)), first);
+    assertSame(first, second);
+    assertArrayEquals(first, afterWrite);
+    verify(ucsbOrganizationRepository, times(2)).findAll();
+  }
+
+  @Test
+  void test_rebuild_reuses_a_current_snapshot() throws Exception {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(CARRILLO));
+    byte[] json = ucsbDiningCommonsCache.allJson();
+    assertSame(json, ucsbDiningCommonsCache.rebuild());
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void test_all_json_expires_after_ttl() throws Exception {
+    // arrange
+    ucsbDiningCommonsCache.ttlSeconds = 0;
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(CARRILLO));
+
+    // act
+    ucsbDiningCommonsCache.allJson();
+    ucsbDiningCommonsCache.allJson();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(2)).findAll();
+  }
+}
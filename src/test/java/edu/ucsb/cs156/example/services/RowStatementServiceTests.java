@@ -0,0 +1,192 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.IntegrationTestApplication;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+/**
+ * Runs the statements against H2 with the second-level cache on, and checks
+ * with Hibernate's statistics that a PATCH or delete of one row leaves the
+ * other cached rows of the table in the cache.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:rowstatements;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop" })
+class RowStatementServiceTests {
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  PartialUpdateService partialUpdateService;
+
+  @Autowired
+  RowStatementService rowStatements;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void clearStatistics() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  /** Saves an article and reads it once, so that it is in the cache. */
+  private Articles article(int i) {
+    Articles saved = articlesRepository.save(Articles.builder()
+        .title("Article " + i)
+        .url("https://example.org/" + i)
+        .explanation("explanation of article " + i)
+        .email("cgaucho@ucsb.edu")
+        .dateAdded(LocalDateTime.parse("2024-01-01T00:00:00").plusMinutes(i))
+        .build());
+    articlesRepository.findById(saved.getId());
+    return saved;
+  }
+
+  private long cacheHits(Runnable lookup) {
+    long before = statistics.getSecondLevelCacheHitCount();
+    lookup.run();
+    return statistics.getSecondLevelCacheHitCount() - before;
+  }
+
+  @Test
+  void deleting_a_row_keeps_the_other_rows_cached() {
+    // arrange
+    Articles deleted = article(1);
+    Articles kept = article(2);
+    assertEquals(1, cacheHits(() -> articlesRepository.findById(kept.getId())));
+
+    // act
+    int rows = articlesRepository.deleteRow(deleted.getId());
+
+    // assert
+    assertEquals(1, rows);
+    assertEquals(1, cacheHits(() -> articlesRepository.findById(kept.getId())));
+    assertTrue(articlesRepository.findById(deleted.getId()).isEmpty());
+    assertEquals(0, articlesRepository.deleteRow(deleted.getId()));
+  }
+
+  @Test
+  void bulk_delete_evicts_only_the_deleted_rows() {
+    // arrange
+    Articles first = article(1);
+    Articles second = article(2);
+    Articles kept = article(3);
+
+    // act
+    int rows = articlesRepository.deleteRows(List.of(first.getId(), second.getId()));
+
+    // assert
+    assertEquals(2, rows);
+    assertEquals(1, cacheHits(() -> articlesRepository.findById(kept.getId())));
+    assertTrue(articlesRepository.findById(first.getId()).isEmpty());
+    assertTrue(articlesRepository.findById(second.getId()).isEmpty());
+    assertEquals(0, articlesRepository.deleteRows(List.of()));
+  }
+
+  @Test
+  void patch_evicts_only_the_patched_row() {
+    // arrange
+    Articles patched = article(1);
+    Articles kept = article(2);
+
+    // act
+    partialUpdateService.patch(Articles.class, patched.getId(), patched.getVersion(),
+        Map.of("title", "Patched title", "dateAdded", "2024-02-01T12:00:00"));
+
+    // assert
+    assertEquals(1, cacheHits(() -> articlesRepository.findById(kept.getId())));
+    Articles reread = articlesRepository.findById(patched.getId()).orElseThrow();
+    assertEquals("Patched title", reread.getTitle());
+    assertEquals(LocalDateTime.parse("2024-02-01T12:00:00"), reread.getDateAdded());
+    assertEquals(patched.getVersion() + 1, reread.getVersion());
+    assertEquals(0, rowStatements.update(Articles.class, patched.getId(), patched.getVersion(),
+        Map.of("title", "Stale title")));
+  }
+
+  @Test
+  void delete_invalidates_cached_query_results_for_the_table() {
+    // arrange
+    UCSBDate deleted = ucsbDateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ("20241").name("first day").localDateTime(LocalDateTime.parse("2024-01-08T00:00:00")).build());
+    UCSBDate kept = ucsbDateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ("20241").name("last day").localDateTime(LocalDateTime.parse("2024-03-22T00:00:00")).build());
+    ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAsc("20241");
+
+    // act
+    ucsbDateRepository.deleteRow(deleted.getId());
+
+    // assert
+    List<Long> ids = ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAsc("20241").stream()
+        .map(UCSBDate::getId)
+        .toList();
+    assertEquals(List.of(kept.getId()), ids);
+  }
+
+  @Test
+  void a_load_that_overlaps_a_delete_does_not_cache_the_deleted_row() throws Exception {
+    // arrange
+    Articles deleted = article(1);
+    TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+    snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    CountDownLatch readerStarted = new CountDownLatch(1);
+    CountDownLatch deleteCommitted = new CountDownLatch(1);
+
+    // act: the reader still sees the row in its snapshot after the delete commits
+    CompletableFuture<Optional<Articles>> reader = CompletableFuture.supplyAsync(() -> snapshot.execute(status -> {
+      articlesRepository.count();
+      readerStarted.countDown();
+      await(deleteCommitted);
+      return articlesRepository.findById(deleted.getId());
+    }));
+    await(readerStarted);
+    articlesRepository.deleteRow(deleted.getId());
+    deleteCommitted.countDown();
+
+    // assert
+    assertTrue(reader.get().isPresent());
+    assertTrue(articlesRepository.findById(deleted.getId()).isEmpty());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
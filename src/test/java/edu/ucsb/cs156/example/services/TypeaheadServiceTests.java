@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.NameSuggestion;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = TypeaheadService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TypeaheadServiceTests {
+
+  @MockBean
+  RestaurantRepository restaurantRepository;
+
+  @MockBean
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  TypeaheadService typeaheadService;
+
+  private static Restaurant restaurant(long id, String name) {
+    return Restaurant.builder().id(id).name(name).description("food").build();
+  }
+
+  private static UCSBDiningCommonsMenuItem menuItem(long id, String name) {
+    return UCSBDiningCommonsMenuItem.builder().id(id).name(name).diningCommonsCode("ortega").station("Entrees").build();
+  }
+
+  private static List<String> names(List<NameSuggestion> suggestions) {
+    return suggestions.stream().map(NameSuggestion::getName).collect(Collectors.toList());
+  }
+
+  private void load(List<Restaurant> restaurants, List<UCSBDiningCommonsMenuItem> menuItems) {
+    when(restaurantRepository.findAll()).thenReturn(restaurants);
+    when(ucsbDiningCommonsMenuItemRepository.streamAll()).thenReturn(menuItems.stream());
+    typeaheadService.load();
+  }
+
+  @Test
+  void test_restaurant_prefixes_ignore_case_and_spacing() {
+    // arrange
+    load(List.of(restaurant(1, "Chipotle"), restaurant(2, "Chick-fil-A"), restaurant(3, "Panda Express"),
+        restaurant(4, "  Chinese   Kitchen")), List.of());
+
+    // act and assert
+    assertEquals(List.of("Chick-fil-A", "  Chinese   Kitchen", "Chipotle"), names(typeaheadService.suggestRestaurants("CHI", 10)));
+    assertEquals(List.of("  Chinese   Kitchen"), names(typeaheadService.suggestRestaurants(" chinese  k", 10)));
+    assertEquals(List.of("Chick-fil-A", "  Chinese   Kitchen"), names(typeaheadService.suggestRestaurants("chi", 2)));
+    assertEquals(List.of(), names(typeaheadService.suggestRestaurants("zz", 10)));
+    assertEquals(4, typeaheadService.suggestRestaurants("", 10).size());
+  }
+
+  @Test
+  void test_duplicate_menu_item_names_are_all_suggested() {
+    load(List.of(), List.of(menuItem(7, "Pizza"), menuItem(3, "Pizza"), menuItem(5, "Pasta")));
+    List<NameSuggestion> suggestions = typeaheadService.suggestMenuItems("pi", 10);
+    assertEquals(List.of(3L, 7L), suggestions.stream().map(NameSuggestion::getId).collect(Collectors.toList()));
+  }
+
+  @Test
+  void test_writes_keep_indexes_current() {
+    // arrange
+    load(List.of(restaurant(1, "Chipotle")), List.of(menuItem(1, "Pizza")));
+
+    // act
+    typeaheadService.restaurantSaved(restaurant(1, "Panda Express"));
+    typeaheadService.restaurantSaved(restaurant(2, "Chick-fil-A"));
+    typeaheadService.menuItemSaved(menuItem(2, "Pasta"));
+    typeaheadService.menuItemDeleted(1);
+    typeaheadService.menuItemDeleted(99);
+
+    // assert
+    assertEquals(List.of("Chick-fil-A"), names(typeaheadService.suggestRestaurants("ch", 10)));
+    assertEquals(List.of("Panda Express"), names(typeaheadService.suggestRestaurants("pan", 10)));
+    assertEquals(List.of("Pasta"), names(typeaheadService.suggestMenuItems("p", 10)));
+  }
+
+  @Test
+  void test_deleted_and_unnamed_rows_are_not_suggested() {
+    load(List.of(restaurant(1, "Chipotle"), restaurant(2, "Chick-fil-A"), restaurant(3, null)), List.of());
+    typeaheadService.restaurantDeleted(1);
+    typeaheadService.restaurantSaved(restaurant(2, null));
+    assertEquals(List.of(), names(typeaheadService.suggestRestaurants("", 10)));
+  }
+
+  @Test
+  void test_reload_replaces_indexes() {
+    load(List.of(restaurant(1, "Chipotle")), List.of(menuItem(1, "Pizza")));
+    when(ucsbDiningCommonsMenuItemRepository.streamAll()).thenReturn(Stream.of(menuItem(2, "Pasta")));
+    when(restaurantRepository.findAll()).thenReturn(List.of(restaurant(2, "Chick-fil-A")));
+    typeaheadService.load();
+    assertEquals(List.of("Chick-fil-A"), names(typeaheadService.suggestRestaurants("", 10)));
+    assertEquals(List.of("Pasta"), names(typeaheadService.suggestMenuItems("", 10)));
+  }
+}
@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = UserAdminService.class)
+class UserAdminServiceTests {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  AdminStatusService adminStatusService;
+
+  @MockBean
+  CurrentUserServiceImpl currentUserService;
+
+  @Autowired
+  UserAdminService userAdminService;
+
+  @Test
+  void test_set_admin_saves_the_flag_then_drops_it_from_both_caches() {
+    // arrange
+    User user = User.builder().id(7L).email("ta@ucsb.edu").admin(false).build();
+    when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+    // act
+    User updated = userAdminService.setAdmin(7L, true);
+
+    // assert
+    assertSame(user, updated);
+    assertTrue(updated.getAdmin());
+    InOrder inOrder = inOrder(userRepository, adminStatusService, currentUserService);
+    inOrder.verify(userRepository).save(user);
+    inOrder.verify(adminStatusService).invalidate("ta@ucsb.edu");
+    inOrder.verify(currentUserService).evictCurrentUser("ta@ucsb.edu");
+  }
+
+  @Test
+  void test_set_admin_of_unknown_user_changes_nothing() {
+    when(userRepository.findById(7L)).thenReturn(Optional.empty());
+    assertThrows(EntityNotFoundException.class, () -> userAdminService.setAdmin(7L, true));
+    verify(userRepository, never()).save(any());
+    verify(adminStatusService, never()).invalidate(any());
+    verify(currentUserService, never()).evictCurrentUser(any());
+  }
+}